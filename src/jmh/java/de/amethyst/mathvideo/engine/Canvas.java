@@ -0,0 +1,42 @@
+package de.amethyst.mathvideo.engine;
+
+import de.amethyst.mathvideo.MathVideo;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Offscreen frame at the benchmarked resolution, set up the same way the exporter sets up its frames
+@State(Scope.Thread)
+public class Canvas {
+    @Param({"1920x1080", "3840x2160"})
+    public String resolution;
+
+    protected MathVideo mathVideo;
+    protected BufferedImage image;
+    protected Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void setUpCanvas() {
+        String[] size = this.resolution.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        this.mathVideo = new MathVideo();
+        this.mathVideo.setSize(width, height);
+        // Transitions started by a benchmark begin at time 0, so update(t) puts them at a fixed point
+        MathVideo.setClock(new FrameClock(MathVideo.FRAMERATE));
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.g = this.image.createGraphics();
+        this.mathVideo.paintBackground(this.g);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownCanvas() {
+        this.g.dispose();
+    }
+}
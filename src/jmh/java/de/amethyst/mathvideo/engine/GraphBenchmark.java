@@ -0,0 +1,47 @@
+package de.amethyst.mathvideo.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+import static de.amethyst.mathvideo.MathVideo.*;
+import static java.lang.Math.*;
+
+public class GraphBenchmark extends Canvas {
+    @Param({"mono", "heightCoded"})
+    public String kind;
+
+    private Graph graph;
+    private Graph morphing;
+
+    @Setup(Level.Trial)
+    public void setUpGraphs() {
+        this.graph = this.create(x -> pow(x/3, 3));
+        // Frozen halfway through a morph into a different curve
+        this.morphing = this.create(x -> pow(x/3, 3));
+        this.morphing.morph(Duration.ofSeconds(2), this.create(x -> (5 * pow(x, 4) - 2 * pow(x, 2) + 5) / 10));
+        this.morphing.update(Duration.ofSeconds(1).toNanos());
+    }
+
+    private Graph create(DoubleUnaryOperator function) {
+        if (this.kind.equals("mono")) {
+            return new MonoColorGraph(function, RED, 3, 100);
+        }
+        return new HeightCodedGraph(function, Map.ofEntries(Map.entry(-1, BLUE), Map.entry(1, RED)), 3, 100);
+    }
+
+    @Benchmark
+    public void render() {
+        this.graph.render(this.g);
+    }
+
+    @Benchmark
+    public void renderMorphing() {
+        this.morphing.render(this.g);
+    }
+}
@@ -0,0 +1,31 @@
+package de.amethyst.mathvideo.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.awt.*;
+import java.util.Map;
+
+import static de.amethyst.mathvideo.MathVideo.*;
+
+public class HeightCodedGraphBenchmark extends Canvas {
+    private static final Map<Integer, Color> COLOR_CODES = Map.ofEntries(
+            Map.entry(-1, BLUE),
+            Map.entry(0, GREEN),
+            Map.entry(1, RED)
+    );
+
+    private HeightCodedGraph graph;
+
+    @Setup(Level.Trial)
+    public void setUpGraph() {
+        this.graph = new HeightCodedGraph(x -> x, COLOR_CODES, 3, 100);
+    }
+
+    // generatePaint is private, setColorCodes is its only caller besides the constructor
+    @Benchmark
+    public HeightCodedGraph generatePaint() {
+        return this.graph.setColorCodes(COLOR_CODES);
+    }
+}
@@ -0,0 +1,35 @@
+package de.amethyst.mathvideo.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.awt.geom.Point2D;
+
+import static de.amethyst.mathvideo.MathVideo.WHITE;
+
+public class LaTeXBenchmark extends Canvas {
+    private static final String SMALL = "f(x)=\\frac{1}{x}";
+    private static final String LARGE = """
+            \\begin{align}
+            f(x)&=a_n \\cdot x^n + a_{n-1} \\cdot x^{n-1} + \\ldots + a_1 \\cdot x + a_0\\\\
+                &=x^n \\cdot (a_n + \\frac{a_{n-1}}{x} + \\ldots + \\frac{a_1}{x^{n-1}} + \\frac{a_0}{x^n})
+            \\end{align}
+            """;
+
+    @Param({"small", "large"})
+    public String formula;
+
+    private LaTeX laTeX;
+
+    @Setup(Level.Trial)
+    public void setUpLaTeX() {
+        this.laTeX = new LaTeX(this.formula.equals("small") ? SMALL : LARGE, WHITE, new Point2D.Double(0, 0), 50, LaTeX.Alignment.CENTER);
+    }
+
+    @Benchmark
+    public void render() {
+        this.laTeX.render(this.g);
+    }
+}
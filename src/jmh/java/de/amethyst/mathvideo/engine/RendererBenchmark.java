@@ -0,0 +1,14 @@
+package de.amethyst.mathvideo.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.awt.geom.Point2D;
+
+public class RendererBenchmark extends Canvas {
+    private final Point2D point = new Point2D.Double(250, -125);
+
+    @Benchmark
+    public Point2D coordinateSpaceToUserSpace() {
+        return Renderer.coordinateSpaceToUserSpace(this.point);
+    }
+}
@@ -0,0 +1,23 @@
+package de.amethyst.mathvideo.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.awt.geom.Point2D;
+
+import static de.amethyst.mathvideo.MathVideo.WHITE;
+
+public class TextBenchmark extends Canvas {
+    private Text text;
+
+    @Setup(Level.Trial)
+    public void setUpText() {
+        this.text = new Text(new Point2D.Double(0, 350), "Konvergenz zu +/- Unendlich", WHITE);
+    }
+
+    @Benchmark
+    public void render() {
+        this.text.render(this.g);
+    }
+}
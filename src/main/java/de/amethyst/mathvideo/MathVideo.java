@@ -1,18 +1,29 @@
 package de.amethyst.mathvideo;
 
 import de.amethyst.mathvideo.engine.*;
+import de.amethyst.mathvideo.export.Exporter;
+import de.amethyst.mathvideo.export.Frame;
+import de.amethyst.mathvideo.export.FrameSink;
+import de.amethyst.mathvideo.export.PngSequenceWriter;
+import de.amethyst.mathvideo.export.Y4mWriter;
+import de.amethyst.mathvideo.expression.Expression;
 import lombok.Getter;
+import lombok.Setter;
 import org.scilab.forge.jlatexmath.TeXFormulaParser;
 
 import javax.swing.JPanel;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 import java.awt.*;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferStrategy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.locks.LockSupport;
 
 import static java.lang.Math.*;
 
@@ -30,26 +41,83 @@ public class MathVideo extends JPanel {
     private static MathVideo self;
     @Getter
     private static Renderer renderer;
+    @Getter
+    @Setter
+    private static SceneClock clock = new RealTimeClock();
+    // Device pixels per user space unit. Scenes are always laid out in 1920x1080, larger exports scale the drawing
+    @Getter
+    private static double deviceScale = 1;
 
     public MathVideo() {
         super();
         self = this;
-
-        // Render thread
         renderer = new Renderer();
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                repaint();
+    }
+
+    private void startRenderLoop(JFrame frame) {
+        // Active rendering: Swing never paints, a dedicated thread page flips the frame's buffers at a steady rate
+        frame.setIgnoreRepaint(true);
+        this.setIgnoreRepaint(true);
+        frame.createBufferStrategy(2);
+        BufferStrategy strategy = frame.getBufferStrategy();
+        Point origin = SwingUtilities.convertPoint(this, 0, 0, frame);
+
+        Thread thread = new Thread(() -> {
+            long period = (long) (1_000_000_000L / FRAMERATE);
+            long deadline = System.nanoTime() + period;
+            long skipped = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                do {
+                    do {
+                        Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                        g.translate(origin.x, origin.y);
+                        // The renderer paints the background as part of its cached static layer
+                        getRenderer().render(g);
+                        g.dispose();
+                    } while (strategy.contentsRestored());
+                    strategy.show();
+                } while (strategy.contentsLost());
+                Toolkit.getDefaultToolkit().sync();
+
+                long late = System.nanoTime() - deadline;
+                if (late >= 0) {
+                    // Missed at least one vsync slot, drop those frames instead of trying to catch up
+                    long missed = late / period;
+                    if (missed > 0) {
+                        skipped += missed;
+                        System.out.printf("Render loop behind, skipped %d frames (%d total)%n", missed, skipped);
+                    }
+                    deadline += (missed + 1) * period;
+                    continue;
+                }
+                // Sleep most of the remaining time, then yield the last stretch away for sub millisecond precision
+                while (deadline - System.nanoTime() > 2_000_000) {
+                    LockSupport.parkNanos(deadline - System.nanoTime() - 2_000_000);
+                }
+                while (deadline - System.nanoTime() > 0) {
+                    Thread.yield();
+                }
+                deadline += period;
             }
-        }, 0, (int) (1000 / FRAMERATE));
+        }, "Render");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
     }
 
     @Override
     public void paint(Graphics graphics) {
+        // Frames are only ever drawn by the render loop, which owns the renderer
+    }
+
+    public void paintBackground(Graphics2D g) {
         // Init + Background
-        Graphics2D g = (Graphics2D) graphics;
+        applyRenderingHints(g);
+        g.setColor(BACK_GRAY);
+        g.fillRect(0, 0, this.getWidth(), this.getHeight());
+    }
+
+    public static void applyRenderingHints(Graphics2D g) {
         g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
@@ -58,16 +126,71 @@ public class MathVideo extends JPanel {
         g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-        g.setColor(BACK_GRAY);
-        g.fillRect(0, 0, this.getWidth(), this.getHeight());
-        getRenderer().render(g);
     }
 
     public static MathVideo getInstance() {
         return self;
     }
 
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        String exportDirectory = null;
+        String exportY4m = null;
+        String bake = null;
+        Path bundle = null;
+        // Size of exported frames, the window always shows the scene at 1920x1080
+        Dimension size = new Dimension(1920, 1080);
+        Duration from = Duration.ZERO;
+        Duration to = null;
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing value for option " + args[args.length - 1]);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--export" -> exportDirectory = args[i + 1];
+                case "--export-y4m" -> exportY4m = args[i + 1];
+                case "--bake" -> bake = args[i + 1];
+                case "--bundle" -> bundle = Path.of(args[i + 1]);
+                case "--from" -> from = parseTimestamp(args[i + 1]);
+                case "--to" -> to = parseTimestamp(args[i + 1]);
+                case "--size" -> size = parseSize(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if ("-".equals(exportY4m)) {
+            // stdout carries the video, keep log output away from it from here on, loading the bundle already logs
+            System.setOut(System.err);
+        }
+        if (bundle != null) {
+            // Load before any scene is built, timelines already ask for their formulas while they are put together
+            AssetBundle.load(bundle, MathVideo.class);
+        }
+
+        if (bake != null) {
+            // Renders the scene like an export, but only keeps what was laid out and sampled on the way
+            AssetBundle.startBaking(MathVideo.class);
+            export(new FrameSink() {
+                @Override
+                public void write(Frame frame) {
+                    frame.release();
+                }
+
+                @Override
+                public void close() {
+                }
+            }, size, from, to);
+            AssetBundle.bake(Path.of(bake));
+            return;
+        }
+        if (exportDirectory != null) {
+            export(new PngSequenceWriter(Path.of(exportDirectory)), size, from, to);
+            return;
+        }
+        if (exportY4m != null) {
+            OutputStream out = exportY4m.equals("-") ? new FileOutputStream(FileDescriptor.out) : Files.newOutputStream(Path.of(exportY4m));
+            export(new Y4mWriter(out, size.width, size.height, FRAMERATE), size, from, to);
+            return;
+        }
+
         // Create Window
         MathVideo mathVideo = new MathVideo();
         JFrame mathVideoFrame = new JFrame("Math Video");
@@ -78,115 +201,164 @@ public class MathVideo extends JPanel {
         mathVideoFrame.setSize(1920, 1080);
         mathVideoFrame.setUndecorated(true);
         mathVideoFrame.setVisible(true);
+        mathVideo.startRenderLoop(mathVideoFrame);
+
+        play(mathVideo, from);
+    }
+
+    // Accepts ss, mm:ss or hh:mm:ss, the seconds with an optional fraction
+    private static Duration parseTimestamp(String timestamp) {
+        double seconds = 0;
+        for (String part : timestamp.split(":")) {
+            seconds = seconds * 60 + Double.parseDouble(part);
+        }
+        return Duration.ofNanos((long) (seconds * 1_000_000_000L));
+    }
+
+    // Accepts WxH in 16:9, e.g. 3840x2160
+    private static Dimension parseSize(String size) {
+        String[] parts = size.split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected a size like 3840x2160, got " + size);
+        }
+        Dimension dimension = new Dimension(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        if (dimension.width <= 0 || (long) dimension.width * 1080 != (long) dimension.height * 1920) {
+            throw new IllegalArgumentException("Expected a 16:9 size like 3840x2160, got " + size);
+        }
+        return dimension;
+    }
 
+    private static void export(FrameSink frameSink, Dimension size, Duration from, Duration to) throws InterruptedException, IOException {
+        System.setProperty("java.awt.headless", "true");
+        MathVideo mathVideo = new MathVideo();
+        mathVideo.setSize(1920, 1080);
+        // Set before the scene is built, formulas are laid out for it as soon as they are created
+        deviceScale = size.width / 1920.0;
+        FrameClock frameClock = new FrameClock(FRAMERATE);
+        setClock(frameClock);
+        try (FrameSink sink = frameSink) {
+            new Exporter(mathVideo, frameClock).export(() -> play(mathVideo, from), sink, to);
+        }
+    }
+
+    private static void play(MathVideo mathVideo, Duration from) throws InterruptedException {
         // Draw graphs
+        Timeline timeline = new Timeline();
         Graph begin = new MonoColorGraph(x -> 0.0, RED, 100);
-        begin.draw();
-        Thread.sleep(5000);
-        begin.delete();
+        timeline.draw(begin);
+        timeline.sleep(5000);
+        timeline.delete(begin);
 
         LaTeX func = new LaTeX("f(x)=\\frac{x}{\\sin(x)}", GRAY, new Point2D.Double(mathVideo.getWidth() / 2.0 - 50, mathVideo.getHeight() / -2.0 + 250), 40, LaTeX.Alignment.RIGHT, true);
 
-        intro(func);
-        examples(func);
-        fourCases(mathVideo);
-        economy(mathVideo);
-        end();
+        timeline.append(intro(func));
+        timeline.append(examples(func));
+        timeline.append(fourCases(mathVideo));
+        timeline.append(economy(mathVideo));
+        timeline.append(end());
+        timeline.playWait(from);
     }
 
-    private static void intro(LaTeX func) throws InterruptedException {
+    private static Timeline intro(LaTeX func) {
+        Timeline timeline = new Timeline();
         Graph intro = new MonoColorGraph(x -> x/sin(x), RED, 3, 25);
-        func.animate(Duration.ofMillis(250));
-        intro.animateWait(Duration.ofMillis(2500));
-        Thread.sleep(2000);
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{\\sin(x)}{5x}");
-        intro.morphWait(Duration.ofMillis(2500), new MonoColorGraph(x -> sin(x)/x*5, YELLOW, 3, 100));
-        Thread.sleep(2000);
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{tan(x)}{2}");
-        intro.morphWait(Duration.ofMillis(2500), new MonoColorGraph(Math::tan, GREEN, 3, 100));
-        Thread.sleep(2000);
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{\\tan(x)}{x}");
-        intro.morphWait(Duration.ofMillis(2500), new MonoColorGraph(x -> tan(x)/x, BLUE, 3, 100));
-        Thread.sleep(2000);
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{2^x}{10}");
-        intro.morphWait(Duration.ofMillis(2500), new MonoColorGraph(x -> pow(2, x) / 10, YELLOW, 3, 100));
-        Thread.sleep(2000);
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{1}{x}");
-        intro.morphWait(Duration.ofMillis(2500), new MonoColorGraph(x -> 1/x, GREEN, 3, 100));
-        Thread.sleep(2000);
-
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{1}{2}x");
-        intro.morph(Duration.ofMillis(2500), new MonoColorGraph(x -> x/2.0, RED, 3, 100));
-        Thread.sleep(1250);
-        func.animateDelete(Duration.ofMillis(250));
+        timeline.animate(func, Duration.ofMillis(250));
+        timeline.animateWait(intro, Duration.ofMillis(2500));
+        timeline.sleep(2000);
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=\\frac{\\sin(x)}{5x}");
+        timeline.morphWait(intro, Duration.ofMillis(2500), new MonoColorGraph(x -> sin(x)/x*5, YELLOW, 3, 100));
+        timeline.sleep(2000);
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=\\frac{tan(x)}{2}");
+        timeline.morphWait(intro, Duration.ofMillis(2500), new MonoColorGraph(Math::tan, GREEN, 3, 100));
+        timeline.sleep(2000);
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=\\frac{\\tan(x)}{x}");
+        timeline.morphWait(intro, Duration.ofMillis(2500), new MonoColorGraph(x -> tan(x)/x, BLUE, 3, 100));
+        timeline.sleep(2000);
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=\\frac{2^x}{10}");
+        timeline.morphWait(intro, Duration.ofMillis(2500), new MonoColorGraph(x -> pow(2, x) / 10, YELLOW, 3, 100));
+        timeline.sleep(2000);
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=\\frac{1}{x}");
+        timeline.morphWait(intro, Duration.ofMillis(2500), new MonoColorGraph(x -> 1/x, GREEN, 3, 100));
+        timeline.sleep(2000);
+
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=\\frac{1}{2}x");
+        timeline.morph(intro, Duration.ofMillis(2500), new MonoColorGraph(x -> x/2.0, RED, 3, 100));
+        timeline.sleep(1250);
+        timeline.animateDelete(func, Duration.ofMillis(250));
         Graph parabola = new MonoColorGraph(x -> pow(x/2, 2), GREEN, 3, 100);
         Graph hyperbola = new MonoColorGraph(x -> -pow(x/3, 3), BLUE, 3, 100);
         Text title = new Text(new Point2D.Double(0, 350), "Konvergenz zu +/- Unendlich", WHITE);
         Text subtitle = new Text(new Point2D.Double(0, 300), "bei ganzrationalen Funktionen", WHITE, 25);
         Text credits = new Text(new Point2D.Double(0, -350), "von Amy, Raphael, Ray und Sebastian", GRAY, 25);
-        parabola.animate(Duration.ofMillis(2500));
-        hyperbola.animateWait(Duration.ofMillis(2500));
-        title.animateWait(Duration.ofMillis(1000));
-        subtitle.animate(Duration.ofMillis(750));
-        credits.animateWait(Duration.ofMillis(750));
-        Thread.sleep(5000);
+        timeline.animate(parabola, Duration.ofMillis(2500));
+        timeline.animateWait(hyperbola, Duration.ofMillis(2500));
+        timeline.animateWait(title, Duration.ofMillis(1000));
+        timeline.animate(subtitle, Duration.ofMillis(750));
+        timeline.animateWait(credits, Duration.ofMillis(750));
+        timeline.sleep(5000);
         /*Tauchen wir ein in die Welt der mathematischen Unendlichkeit, während wir die Geheimnisse hinter dem Verhalten von ganzrationalen Funktionen entschlüsseln.
         Von ganzrationalen Funktionen, die sich dem positiven Unendlich annähern, bis hin zu jenen, die sich in den Abgründen des negativen Unendlich verlieren –
         wir werden die mathematischen Kurven erkunden, die unsere Vorstellungskraft herausfordern. Bereit für eine Reise durch die unendlichen Weiten der Mathematik?
         Dann lassen Sie uns gemeinsam in diese faszinierende Analyse eintauchen.*/
 
-        intro.animateDelete(Duration.ofMillis(1000));
-        parabola.animateDelete(Duration.ofMillis(1000));
-        hyperbola.morph(Duration.ofMillis(1000), hyperbola.clone().setFunction(x -> pow(x/3, 3)));
-        func.setLaTeX("f(x)=\\frac{1}{27}x^3");
-        func.animate(Duration.ofMillis(250));
+        timeline.animateDelete(intro, Duration.ofMillis(1000));
+        timeline.animateDelete(parabola, Duration.ofMillis(1000));
+        timeline.morph(hyperbola, Duration.ofMillis(1000), () -> hyperbola.clone().setFunction(x -> pow(x/3, 3)));
+        timeline.setLaTeX(func, "f(x)=\\frac{1}{27}x^3");
+        timeline.animate(func, Duration.ofMillis(250));
 
-        title.animateDeleteWait(Duration.ofMillis(500));
-        subtitle.animateDelete(Duration.ofMillis(500));
-        credits.animateDeleteWait(Duration.ofMillis(500));
-        Thread.sleep(9000);
+        timeline.animateDeleteWait(title, Duration.ofMillis(500));
+        timeline.animateDelete(subtitle, Duration.ofMillis(500));
+        timeline.animateDeleteWait(credits, Duration.ofMillis(500));
+        timeline.sleep(9000);
         /*Schauen wir uns zuerst das Verhalten an, wenn x gegen Plus Unendlich geht. In diesem Fall nähert sich die Funktion immer mehr*/
-        hyperbola.delete();
+        timeline.delete(hyperbola);
+        return timeline;
     }
 
-    private static void examples(LaTeX func) throws InterruptedException {
+    private static Timeline examples(LaTeX func) {
+        Timeline timeline = new Timeline();
+        Expression quartic = Expression.parse("(5x^4-2x^2+5)/10");
+        Expression negated = Expression.parse("(-5x^4+2x^2-5)/10");
         Graph hyperbola = new HeightCodedGraph(x -> pow(x/3, 3), Collections.singletonMap(0, BLUE), 3, 100);
-        hyperbola.morphWait(Duration.ofMillis(1000), new HeightCodedGraph(x -> pow(x/3, 3), Map.ofEntries(
+        timeline.morphWait(hyperbola, Duration.ofMillis(1000), new HeightCodedGraph(x -> pow(x/3, 3), Map.ofEntries(
                 Map.entry(-1, BLUE),
                 Map.entry(1, RED)
         ), hyperbola.getWidth(), hyperbola.getScale()));
-        Thread.sleep(9000);
+        timeline.sleep(9000);
         /*positiver Unendlichkeit. Und jetzt, wenn x gegen Minus Unendlich geht, nähern sich die die Funktionswerte negativer Unendlichkeit.*/
-        func.morph(Duration.ofMillis(500), "f(x)={\\frac{1}{640}x^5+\\frac{3}{320}x^4-\\frac{11}{160}x^3-\\frac{27}{80}x^2+\\frac{1}{4}x+\\frac{4}{5}}");
-        hyperbola.morphWait(Duration.ofMillis(1000), hyperbola.clone().setFunction(x -> (pow(x/2, 5) + 3 * pow(x/2, 4) - 11 * pow(x/2, 3) - 27 * pow(x/2, 2) + 10 * x/2 + 32) / 20.0));
-        Thread.sleep(4000);
+        timeline.morph(func, Duration.ofMillis(500), "f(x)={\\frac{1}{640}x^5+\\frac{3}{320}x^4-\\frac{11}{160}x^3-\\frac{27}{80}x^2+\\frac{1}{4}x+\\frac{4}{5}}");
+        timeline.morphWait(hyperbola, Duration.ofMillis(1000), () -> hyperbola.clone().setFunction(x -> (pow(x/2, 5) + 3 * pow(x/2, 4) - 11 * pow(x/2, 3) - 27 * pow(x/2, 2) + 10 * x/2 + 32) / 20.0));
+        timeline.sleep(4000);
         /* Mathematisch ausgedrückt bedeutet das, wenn wir das Verhalten der Funktion f(x) für x-Werte gegen*/
         LaTeX limit = new LaTeX("\\begin{gather}x\\to+\\infty\\\\ f(x)\\to+\\infty\\end{gather}", RED, new Point2D.Double(0, 400), 75, LaTeX.Alignment.CENTER, true);
-        limit.animate(Duration.ofMillis(1000));
-        Thread.sleep(10000);
+        timeline.animate(limit, Duration.ofMillis(1000));
+        timeline.sleep(10000);
         /*+∞ betrachten, geht f(x) ebenfalls gegen Plus Unendlich.*/
-        limit.animateDelete(Duration.ofMillis(1000));
-        hyperbola.morphWait(Duration.ofMillis(1000), hyperbola.clone().setFunction(x -> (5 * pow(x, 4) - 2 * pow(x, 2) + 5) / 10));
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{5x^4-2x^2+5}{10}");
-        Thread.sleep(6000 + 3000);
+        timeline.animateDelete(limit, Duration.ofMillis(1000));
+        timeline.morphWait(hyperbola, Duration.ofMillis(1000), () -> hyperbola.clone().setFunction(quartic.getFunction()));
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=" + quartic.toLaTeX());
+        timeline.sleep(6000 + 3000);
         /*Betrachten wir ein Beispiel mit einer ganzrationalen Funktion, zum Beispiel f(x) = 5x^4-2x^2+5. Wenn x gegen Plus Unendlich geht, schauen Sie sich an, wie sich die Funktion verhält*/
-        hyperbola.morphWait(Duration.ofMillis(5000), hyperbola.clone().setFunction(x -> (5 * pow(x, 4) - 2 * pow(x, 2) + 5) / 10).setScale(1));
-        Thread.sleep(5000);
+        timeline.morphWait(hyperbola, Duration.ofMillis(5000), () -> hyperbola.clone().setFunction(quartic.getFunction()).setScale(1));
+        timeline.sleep(5000);
         /*Der Wert von f(x) nähert sich positiver Unendlichkeit.*/
-        hyperbola.morphWait(Duration.ofMillis(1000), hyperbola.clone().setFunction(x -> (5 * pow(x, 4) - 2 * pow(x, 2) + 5) / -10).setScale(100));
-        func.morph(Duration.ofMillis(500), "f(x)=\\frac{-5x^4+2x^2-5}{10}");
-        Thread.sleep(2000);
+        timeline.morphWait(hyperbola, Duration.ofMillis(1000), () -> hyperbola.clone().setFunction(negated.getFunction()).setScale(100));
+        timeline.morph(func, Duration.ofMillis(500), "f(x)=" + negated.toLaTeX());
+        timeline.sleep(2000);
         /*Und wenn x gegen Minus Unendlich geht, sehen Sie, dass sich f(x) negativer Unendlichkeit nähert.*/
-        func.animateDelete(Duration.ofMillis(250));
-        hyperbola.animateDeleteWait(Duration.ofMillis(1000));
-        Thread.sleep(1000);
+        timeline.animateDelete(func, Duration.ofMillis(250));
+        timeline.animateDeleteWait(hyperbola, Duration.ofMillis(1000));
+        timeline.sleep(1000);
+        return timeline;
     }
 
-    private static void fourCases(MathVideo mathVideo) throws InterruptedException {
-        AnimatableDeletable[] cases = drawFourCases(mathVideo);
-        Thread.sleep(8000);
-        deleteFourCases(cases);
-        Thread.sleep(100);
+    private static Timeline fourCases(MathVideo mathVideo) {
+        Timeline timeline = new Timeline();
+        AnimatableDeletable[] cases = drawFourCases(timeline, mathVideo);
+        timeline.sleep(8000);
+        deleteFourCases(timeline, cases);
+        timeline.sleep(100);
         /*
         Für die 4 Fälle, die wir uns gleich anschauen, ist nur a_n*x^n relevant, da für die Ermittlung des Aussehens des Graphen nur der Grad und der Koeffizient des x'es beim Grad relevant ist.
          */
@@ -196,8 +368,8 @@ public class MathVideo extends JPanel {
                     &=x^n \\cdot (a_n + \\frac{a_{n-1}}{x} + \\ldots + \\frac{a_1}{x^{n-1}} + \\frac{a_0}{x^n})
                 \\end{align}
                 """, WHITE, new Point2D.Double(mathVideo.getWidth() / -2.0, mathVideo.getHeight() / 2.0), 50);
-        proof1.animateWait(Duration.ofMillis(1000));
-        Thread.sleep(7000);
+        timeline.animateWait(proof1, Duration.ofMillis(1000));
+        timeline.sleep(7000);
         /*
         Wenn wir allgemein eine ganzrationale Funktion haben, können wir sie so umschreiben, sodass alles ein Faktor von x^n ist. Dies können wir ausnutzen,
          */
@@ -208,13 +380,13 @@ public class MathVideo extends JPanel {
                 &\\Rightarrow f(x) \\approx a_n \\cdot x^n
                 \\end{align}
                 """, WHITE, new Point2D.Double(mathVideo.getWidth() / -2.0, mathVideo.getHeight() / 2.0 - 190), 50);
-        proof2.animateWait(Duration.ofMillis(1000));
-        Thread.sleep(8500);
+        timeline.animateWait(proof2, Duration.ofMillis(1000));
+        timeline.sleep(8500);
         /*
         um klarzumachen, dass bei kleinen x der Term gegen 0 geht und dieser daher keinen Effekt hat. Das heißt, dass dann f(x) ungefähr a_n*x^n ist.
          */
-        proof1.animateDelete(Duration.ofMillis(1000));
-        proof2.animateDeleteWait(Duration.ofMillis(1000));
+        timeline.animateDelete(proof1, Duration.ofMillis(1000));
+        timeline.animateDeleteWait(proof2, Duration.ofMillis(1000));
         double xShift = mathVideo.getWidth() / 4.0;
         LaTeX pparabolaLimit = new LaTeX("""
                 \\begin{gather}
@@ -244,33 +416,34 @@ public class MathVideo extends JPanel {
                 x \\to -\\infty \\quad f(x) \\to +\\infty
                 \\end{gather}
                 """, WHITE, new Point2D.Double(xShift, -100), 40, LaTeX.Alignment.CENTER);
-        cases = drawFourCases(mathVideo);
-        pparabolaLimit.animate(Duration.ofMillis(250));
-        nparabolaLimit.animateWait(Duration.ofMillis(250));
-        Thread.sleep(4000);
+        cases = drawFourCases(timeline, mathVideo);
+        timeline.animate(pparabolaLimit, Duration.ofMillis(250));
+        timeline.animateWait(nparabolaLimit, Duration.ofMillis(250));
+        timeline.sleep(4000);
         /*
         Ist der Grad gerade, so ähnelt die Funktion einer Parabel,
         gilt nur bei großen und kleinen Werten, andernfalls ist der Unterschied um den Ursprung herum zu groß:
         für a > 0 ist die Funktion nach oben geöffnet
         für a < 0 ist die Funktion nach unten geöffnet
          */
-        phyperbolaLimit.animate(Duration.ofMillis(2500));
-        nhyperbolaLimit.animateWait(Duration.ofMillis(2500));
-        Thread.sleep(4000);
+        timeline.animate(phyperbolaLimit, Duration.ofMillis(2500));
+        timeline.animateWait(nhyperbolaLimit, Duration.ofMillis(2500));
+        timeline.sleep(4000);
         /*
         Ist der Grad ungerade, so ähnelt die Funktion einer kubischen Parabel,
         gilt nur bei großen und kleinen Werten, andernfalls ist der Unterschied um den Ursprung herum zu groß:
         für a > 0 gilt für x -> +∞ gilt f(x) -> +∞, für x -> -∞ gilt f(x) -> -∞
         für a < 0 gilt für x -> +∞ gilt f(x) -> -∞, für x -> -∞ gilt f(x) -> +∞
          */
-        deleteFourCases(cases);
-        pparabolaLimit.animateDelete(Duration.ofMillis(1000));
-        nparabolaLimit.animateDelete(Duration.ofMillis(1000));
-        phyperbolaLimit.animateDelete(Duration.ofMillis(1000));
-        nhyperbolaLimit.animateDeleteWait(Duration.ofMillis(1000));
+        deleteFourCases(timeline, cases);
+        timeline.animateDelete(pparabolaLimit, Duration.ofMillis(1000));
+        timeline.animateDelete(nparabolaLimit, Duration.ofMillis(1000));
+        timeline.animateDelete(phyperbolaLimit, Duration.ofMillis(1000));
+        timeline.animateDeleteWait(nhyperbolaLimit, Duration.ofMillis(1000));
+        return timeline;
     }
 
-    private static AnimatableDeletable[] drawFourCases(MathVideo mathVideo) throws InterruptedException {
+    private static AnimatableDeletable[] drawFourCases(Timeline timeline, MathVideo mathVideo) {
         double xShift = mathVideo.getWidth() / 4.0;
         double yShift = mathVideo.getHeight() / 4.0;
         Graph pparabola = new MonoColorGraph(x -> (pow((x + xShift) / 15, 2) + yShift), GREEN, 3);
@@ -289,33 +462,34 @@ public class MathVideo extends JPanel {
         LaTeX nhyperbolaLabel = new LaTeX("f(x)=-x^3", WHITE, new Point2D.Double(xShift, -2*yShift + 40), 40, LaTeX.Alignment.CENTER);
         nhyperbola.setMinX(0);
         nhyperbola.setMaxY(0);
-        phyperbola.animate(Duration.ofMillis(1000));
-        nhyperbola.animate(Duration.ofMillis(1000));
-        pparabola.animate(Duration.ofMillis(1000));
-        nparabola.animate(Duration.ofMillis(1000));
-        Thread.sleep(750);
-        pparabolaLabel.animate(Duration.ofMillis(250));
-        nparabolaLabel.animate(Duration.ofMillis(250));
-        phyperbolaLabel.animate(Duration.ofMillis(250));
-        nhyperbolaLabel.animate(Duration.ofMillis(250));
-        Thread.sleep(250);
+        timeline.animate(phyperbola, Duration.ofMillis(1000));
+        timeline.animate(nhyperbola, Duration.ofMillis(1000));
+        timeline.animate(pparabola, Duration.ofMillis(1000));
+        timeline.animate(nparabola, Duration.ofMillis(1000));
+        timeline.sleep(750);
+        timeline.animate(pparabolaLabel, Duration.ofMillis(250));
+        timeline.animate(nparabolaLabel, Duration.ofMillis(250));
+        timeline.animate(phyperbolaLabel, Duration.ofMillis(250));
+        timeline.animate(nhyperbolaLabel, Duration.ofMillis(250));
+        timeline.sleep(250);
         return new AnimatableDeletable[]{pparabola, nparabola, phyperbola, nhyperbola, pparabolaLabel, nparabolaLabel, phyperbolaLabel, nhyperbolaLabel};
     }
 
-    private static void deleteFourCases(AnimatableDeletable[] cases) throws InterruptedException {
-        cases[0].animateDelete(Duration.ofMillis(1000));
-        cases[1].animateDelete(Duration.ofMillis(1000));
-        cases[2].animateDelete(Duration.ofMillis(1000));
-        cases[3].animateDelete(Duration.ofMillis(1000));
-        Thread.sleep(750);
-        cases[4].animateDelete(Duration.ofMillis(250));
-        cases[5].animateDelete(Duration.ofMillis(250));
-        cases[6].animateDelete(Duration.ofMillis(250));
-        cases[7].animateDelete(Duration.ofMillis(250));
-        Thread.sleep(250);
+    private static void deleteFourCases(Timeline timeline, AnimatableDeletable[] cases) {
+        timeline.animateDelete(cases[0], Duration.ofMillis(1000));
+        timeline.animateDelete(cases[1], Duration.ofMillis(1000));
+        timeline.animateDelete(cases[2], Duration.ofMillis(1000));
+        timeline.animateDelete(cases[3], Duration.ofMillis(1000));
+        timeline.sleep(750);
+        timeline.animateDelete(cases[4], Duration.ofMillis(250));
+        timeline.animateDelete(cases[5], Duration.ofMillis(250));
+        timeline.animateDelete(cases[6], Duration.ofMillis(250));
+        timeline.animateDelete(cases[7], Duration.ofMillis(250));
+        timeline.sleep(250);
     }
 
-    private static void economy(MathVideo mathVideo) throws InterruptedException {
+    private static Timeline economy(MathVideo mathVideo) {
+        Timeline timeline = new Timeline();
         LaTeX problem = new LaTeX("""
                 \\textrm{Als einziger Anbieter eines bestimmten Produktes ist eine Firma ein Angebotsmonopolist.\\\\
                 Bei der Herstellung ergibt sich durch Regression der folgende funktionale Zusammenhang\\\\
@@ -333,32 +507,35 @@ public class MathVideo extends JPanel {
                              K(x) &\\to +\\infty\\\\
                 \\end{align}
                 """, WHITE, new Point2D.Double(0, mathVideo.getHeight() / -2.0 + 150), 40, LaTeX.Alignment.CENTER);
-        problem.animateWait(Duration.ofMillis(1000));
-        solution.animateWait(Duration.ofMillis(1000));
-        k.animateWait(Duration.ofMillis(1000));
-        Thread.sleep(16000);
+        timeline.animateWait(problem, Duration.ofMillis(1000));
+        timeline.animateWait(solution, Duration.ofMillis(1000));
+        timeline.animateWait(k, Duration.ofMillis(1000));
+        timeline.sleep(16000);
         /*
         Schließlich betrachten wir die praktische Anwendung dieser Konzepte. In wirtschaftlichen Modellen können Funktionen das Verhalten von Ressourcen oder Gewinnen beschreiben.
         Das Verständnis, wie diese Funktionen in extremen Situationen reagieren, kann uns helfen, langfristige Trends und Stabilität zu analysieren.
          */
-        problem.animateDelete(Duration.ofMillis(1000));
-        solution.animateDelete(Duration.ofMillis(1000));
-        k.animateDeleteWait(Duration.ofMillis(1000));
+        timeline.animateDelete(problem, Duration.ofMillis(1000));
+        timeline.animateDelete(solution, Duration.ofMillis(1000));
+        timeline.animateDeleteWait(k, Duration.ofMillis(1000));
+        return timeline;
     }
 
-    private static void end() throws InterruptedException {
+    private static Timeline end() {
+        Timeline timeline = new Timeline();
         Graph intro = new MonoColorGraph(x -> x/2.0, RED, 3, 100);
         Graph parabola = new MonoColorGraph(x -> pow(x/2, 2), GREEN, 3, 100);
         Graph hyperbola = new MonoColorGraph(x -> -pow(x/3, 3), BLUE, 3, 100);
         Text title = new Text(new Point2D.Double(0, 350), "Konvergenz zu +/- Unendlich", WHITE);
         Text subtitle = new Text(new Point2D.Double(0, 300), "bei ganzrationalen Funktionen", WHITE, 25);
         Text credits = new Text(new Point2D.Double(0, -350), "von Amy, Raphael, Ray und Sebastian", GRAY, 25);
-        intro.animate(Duration.ofMillis(2500));
-        parabola.animate(Duration.ofMillis(2500));
-        hyperbola.animateWait(Duration.ofMillis(2500));
-        title.animateWait(Duration.ofMillis(1000));
-        subtitle.animate(Duration.ofMillis(750));
-        credits.animateWait(Duration.ofMillis(750));
+        timeline.animate(intro, Duration.ofMillis(2500));
+        timeline.animate(parabola, Duration.ofMillis(2500));
+        timeline.animateWait(hyperbola, Duration.ofMillis(2500));
+        timeline.animateWait(title, Duration.ofMillis(1000));
+        timeline.animate(subtitle, Duration.ofMillis(750));
+        timeline.animateWait(credits, Duration.ofMillis(750));
         /*Zusammenfassend kann man sagen, dass der grobe Verlauf des Graphen mit den oben genannten Fällen ermittelt werden kann.*/
+        return timeline;
     }
 }
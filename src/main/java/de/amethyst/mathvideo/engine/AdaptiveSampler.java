@@ -0,0 +1,175 @@
+package de.amethyst.mathvideo.engine;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.DoubleUnaryOperator;
+
+// Samples a curve densely where it bends and sparsely where it is straight. Steps that still jump across the screen at
+// the finest step are discontinuities, they leave a gap (a NaN point) instead of a vertical line across an asymptote.
+public class AdaptiveSampler {
+    private static final double INITIAL_STEP = 8;
+    // Finest step and chord distance are in device pixels, a larger export refines further in user space
+    private static final double MIN_STEP = 1.0 / 16;
+    // Maximum distance in device pixels between the curve and the chord drawn for it
+    private static final double TOLERANCE = 0.25;
+    // Points one initial step may add at device scale 1 before refinement stops, it grows with the scale. The cap belongs
+    // to the step, so the curve is the same no matter how the steps are split over threads
+    public static final int MAX_STEP_POINTS = 64;
+
+    @Value
+    public static class Curve {
+        double[] xs;
+        double[] ys;
+        double visibleHeight;
+        double deviceScale;
+
+        public int size() {
+            return this.xs.length;
+        }
+    }
+
+    private final DoubleUnaryOperator function;
+    private final double top;
+    private final double bottom;
+    private final double minStep;
+    private final double tolerance;
+    private final int stepPoints;
+    // Size the step being refined may grow to
+    private int limit;
+    private double[] xs = new double[512];
+    private double[] ys = new double[512];
+    private int size = 0;
+
+    private AdaptiveSampler(DoubleUnaryOperator function, double visibleHeight, double deviceScale) {
+        this.function = function;
+        this.top = visibleHeight / 2.0;
+        this.bottom = -this.top;
+        this.minStep = MIN_STEP / deviceScale;
+        this.tolerance = TOLERANCE / deviceScale;
+        this.stepPoints = (int) Math.ceil(MAX_STEP_POINTS * deviceScale);
+    }
+
+    // x and y are in coordinate space, where one unit is one pixel at 1080p and deviceScale pixels in the frame
+    public static Curve sample(DoubleUnaryOperator function, double minX, double maxX, double visibleHeight, double deviceScale) {
+        Curve curve = AssetBundle.findCurve(function, minX, maxX, visibleHeight, deviceScale);
+        if (curve == null) {
+            curve = sampleCurve(function, minX, maxX, visibleHeight, deviceScale);
+        }
+        AssetBundle.record(function, minX, maxX, curve);
+        return curve;
+    }
+
+    private static Curve sampleCurve(DoubleUnaryOperator function, double minX, double maxX, double visibleHeight, double deviceScale) {
+        int steps = Math.max(1, (int) Math.ceil((maxX - minX) / INITIAL_STEP));
+        int probe = Math.min(Sampling.PROBE, steps);
+        // The probe evaluates the ends of the first steps, sampling starts from those values instead of repeating them
+        double[] probed = new double[probe];
+        long start = System.nanoTime();
+        for (int step = 0; step < probe; step++) {
+            probed[step] = function.applyAsDouble(minX + step * INITIAL_STEP);
+        }
+        long nanosPerCall = (System.nanoTime() - start) / probe;
+
+        // Every step costs at least two evaluations, its end and its midpoint
+        if (!Sampling.isParallel(steps * 2, nanosPerCall)) {
+            AdaptiveSampler sampler = new AdaptiveSampler(function, visibleHeight, deviceScale);
+            sampler.sampleSteps(minX, maxX, steps, 0, steps, probed);
+            return new Curve(Arrays.copyOf(sampler.xs, sampler.size), Arrays.copyOf(sampler.ys, sampler.size), visibleHeight, deviceScale);
+        }
+
+        // Steps are refined independently of each other, so runs of them are sampled in parallel and joined in order
+        int chunk = Sampling.getChunkSize(steps);
+        List<ForkJoinTask<AdaptiveSampler>> chunks = new ArrayList<>();
+        for (int from = 0; from < steps; from += chunk) {
+            int first = from;
+            int last = Math.min(steps, from + chunk);
+            chunks.add(ForkJoinTask.adapt(() -> {
+                AdaptiveSampler sampler = new AdaptiveSampler(function, visibleHeight, deviceScale);
+                sampler.sampleSteps(minX, maxX, steps, first, last, probed);
+                return sampler;
+            }));
+        }
+        ForkJoinTask.invokeAll(chunks);
+        int size = 0;
+        for (ForkJoinTask<AdaptiveSampler> task : chunks) {
+            size += task.join().size;
+        }
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        int offset = 0;
+        for (ForkJoinTask<AdaptiveSampler> task : chunks) {
+            AdaptiveSampler sampler = task.join();
+            System.arraycopy(sampler.xs, 0, xs, offset, sampler.size);
+            System.arraycopy(sampler.ys, 0, ys, offset, sampler.size);
+            offset += sampler.size;
+        }
+        return new Curve(xs, ys, visibleHeight, deviceScale);
+    }
+
+    // Appends the points of the initial steps in [from, to), including the start of the curve for the first step. Ends
+    // of the first probed.length steps are taken from probed
+    private void sampleSteps(double minX, double maxX, int steps, int from, int to, double[] probed) {
+        double x0 = minX + from * INITIAL_STEP;
+        double y0 = from < probed.length ? probed[from] : this.function.applyAsDouble(x0);
+        if (from == 0) {
+            this.add(x0, y0);
+        }
+        for (int step = from + 1; step <= to; step++) {
+            double x1 = step == steps ? maxX : minX + step * INITIAL_STEP;
+            double y1 = step < probed.length ? probed[step] : this.function.applyAsDouble(x1);
+            this.limit = this.size + this.stepPoints;
+            this.refine(x0, y0, x1, y1);
+            x0 = x1;
+            y0 = y1;
+        }
+    }
+
+    // Appends the points after x0 up to and including x1
+    private void refine(double x0, double y0, double x1, double y1) {
+        double xm = 0.5 * (x0 + x1);
+        double ym = this.function.applyAsDouble(xm);
+        if (!this.needsRefinement(y0, ym, y1)) {
+            this.add(x1, y1);
+            return;
+        }
+        if (x1 - x0 > this.minStep && this.size < this.limit) {
+            this.refine(x0, y0, xm, ym);
+            this.refine(xm, ym, x1, y1);
+            return;
+        }
+        if (Math.abs(y1 - y0) > this.top - this.bottom) {
+            this.add(xm, Double.NaN);
+        } else {
+            this.add(xm, ym);
+        }
+        this.add(x1, y1);
+    }
+
+    private boolean needsRefinement(double y0, double ym, double y1) {
+        boolean finite0 = Double.isFinite(y0);
+        boolean finiteM = Double.isFinite(ym);
+        boolean finite1 = Double.isFinite(y1);
+        if (!finite0 || !finiteM || !finite1) {
+            // Narrow down the edge of the domain, nothing to draw where all three are undefined
+            return finite0 || finiteM || finite1;
+        }
+        if ((y0 > this.top && ym > this.top && y1 > this.top) || (y0 < this.bottom && ym < this.bottom && y1 < this.bottom)) {
+            return false;
+        }
+        return Math.abs(ym - 0.5 * (y0 + y1)) > this.tolerance;
+    }
+
+    private void add(double x, double y) {
+        if (this.size == this.xs.length) {
+            this.xs = Arrays.copyOf(this.xs, this.size * 2);
+            this.ys = Arrays.copyOf(this.ys, this.size * 2);
+        }
+        this.xs[this.size] = x;
+        this.ys[this.size] = y;
+        this.size++;
+    }
+}
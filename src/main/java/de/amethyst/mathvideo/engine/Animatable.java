@@ -1,11 +1,13 @@
 package de.amethyst.mathvideo.engine;
 
+import de.amethyst.mathvideo.MathVideo;
+
 import java.time.Duration;
 
 public interface Animatable extends Renderable {
     void animate(Duration duration);
     default void animateWait(Duration duration) throws InterruptedException {
         this.animate(duration);
-        Thread.sleep(duration.toMillis());
+        MathVideo.getClock().sleep(duration);
     }
 }
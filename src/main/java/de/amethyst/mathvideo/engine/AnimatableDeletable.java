@@ -1,5 +1,7 @@
 package de.amethyst.mathvideo.engine;
 
+import de.amethyst.mathvideo.MathVideo;
+
 import java.time.Duration;
 
 public interface AnimatableDeletable extends Animatable {
@@ -7,6 +9,6 @@ public interface AnimatableDeletable extends Animatable {
 
     default void animateDeleteWait(Duration duration) throws InterruptedException {
         this.animateDelete(duration);
-        Thread.sleep(duration.toMillis());
+        MathVideo.getClock().sleep(duration);
     }
 }
@@ -0,0 +1,361 @@
+package de.amethyst.mathvideo.engine;
+
+import lombok.Value;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleUnaryOperator;
+import java.util.zip.CRC32;
+
+// Assets baked ahead of time so a cold start does not lay out the same formulas, glyphs and curves again. A bake run
+// records everything it computes into one file: an index of keys followed by the payloads. At launch the file is
+// memory-mapped and only the index is read, payloads are decoded when first asked for, so pages that are never used
+// are never loaded. The header carries a checksum of the class the scenes are written in, curves are only told apart by
+// a handful of values, so a bundle baked before the script changed is refused instead of serving stale curves.
+public class AssetBundle {
+    private static final int MAGIC = 0x4d564231;
+    private static final int VERSION = 3;
+    private static final byte FORMULA = 1;
+    private static final byte GLYPHS = 2;
+    private static final byte CURVE = 3;
+    // Functions are told apart by their values at this many points spread over the sampled range
+    private static final int FINGERPRINT_POINTS = 17;
+
+    @Value
+    private static class GlyphsKey {
+        String content;
+        int size;
+    }
+
+    @Value
+    private static class CurveKey {
+        double minX;
+        double maxX;
+        double visibleHeight;
+        double deviceScale;
+        long fingerprint;
+    }
+
+    // Position of a payload in the mapped file
+    @Value
+    private static class Entry {
+        int offset;
+        int length;
+    }
+
+    private static volatile Bundle loaded;
+    private static volatile Bake baking;
+
+    private static class Bundle {
+        private final MappedByteBuffer buffer;
+        private final Map<LaTeXCache.Key, Entry> formulas = new HashMap<>();
+        private final Map<GlyphsKey, Entry> glyphs = new HashMap<>();
+        private final Map<CurveKey, Entry> curves = new HashMap<>();
+
+        private Bundle(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        // Absolute view of a payload, readers never share a position
+        private ByteBuffer payload(Entry entry) {
+            return this.buffer.duplicate().position(entry.getOffset()).limit(entry.getOffset() + entry.getLength()).slice();
+        }
+    }
+
+    private static class Bake {
+        private final long script;
+        private final Map<LaTeXCache.Key, LaTeXCache.Formula> formulas = new ConcurrentHashMap<>();
+        private final Map<GlyphsKey, Text.Glyphs> glyphs = new ConcurrentHashMap<>();
+        private final Map<CurveKey, AdaptiveSampler.Curve> curves = new ConcurrentHashMap<>();
+
+        private Bake(long script) {
+            this.script = script;
+        }
+    }
+
+    public static void load(Path file, Class<?> script) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(file + " is not an asset bundle of version " + VERSION);
+        }
+        if (buffer.getLong() != checksum(script)) {
+            throw new IOException(file + " was baked from a different version of " + script.getSimpleName() + ", bake it again");
+        }
+        int count = buffer.getInt();
+        int payloads = buffer.getInt();
+        Bundle bundle = new Bundle(buffer);
+        for (int i = 0; i < count; i++) {
+            byte type = buffer.get();
+            switch (type) {
+                case FORMULA -> bundle.formulas.put(new LaTeXCache.Key(getString(buffer), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getDouble()), getEntry(buffer, payloads));
+                case GLYPHS -> bundle.glyphs.put(new GlyphsKey(getString(buffer), buffer.getInt()), getEntry(buffer, payloads));
+                case CURVE -> bundle.curves.put(new CurveKey(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getLong()), getEntry(buffer, payloads));
+                default -> throw new IOException("Unknown entry type " + type + " in " + file);
+            }
+        }
+        loaded = bundle;
+        System.out.printf("Loaded asset bundle with %d formulas, %d texts and %d curves%n", bundle.formulas.size(), bundle.glyphs.size(), bundle.curves.size());
+    }
+
+    // Everything computed from now on is recorded until bake() writes it
+    public static void startBaking(Class<?> script) throws IOException {
+        baking = new Bake(checksum(script));
+    }
+
+    public static void bake(Path file) throws IOException {
+        Bake bake = baking;
+        baking = null;
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        for (Map.Entry<LaTeXCache.Key, LaTeXCache.Formula> formula : bake.formulas.entrySet()) {
+            LaTeXCache.Key key = formula.getKey();
+            index.writeByte(FORMULA);
+            putString(index, key.getLaTeX());
+            index.writeInt(key.getScale());
+            index.writeInt(key.getStyle());
+            index.writeInt(key.getRgb());
+            index.writeDouble(key.getDeviceScale());
+            int start = payload.size();
+            putFormula(payload, formula.getValue());
+            putEntry(index, payload, start);
+        }
+        for (Map.Entry<GlyphsKey, Text.Glyphs> glyphs : bake.glyphs.entrySet()) {
+            index.writeByte(GLYPHS);
+            putString(index, glyphs.getKey().getContent());
+            index.writeInt(glyphs.getKey().getSize());
+            int start = payload.size();
+            putGlyphs(payload, glyphs.getValue());
+            putEntry(index, payload, start);
+        }
+        for (Map.Entry<CurveKey, AdaptiveSampler.Curve> curve : bake.curves.entrySet()) {
+            CurveKey key = curve.getKey();
+            index.writeByte(CURVE);
+            index.writeDouble(key.getMinX());
+            index.writeDouble(key.getMaxX());
+            index.writeDouble(key.getVisibleHeight());
+            index.writeDouble(key.getDeviceScale());
+            index.writeLong(key.getFingerprint());
+            int start = payload.size();
+            putCurve(payload, curve.getValue());
+            putEntry(index, payload, start);
+        }
+
+        // Payloads start on an 8 byte boundary, so the pixel and sample arrays in them are aligned
+        int header = 24 + index.size();
+        int payloads = (header + 7) & ~7;
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(bake.script);
+            out.writeInt(bake.formulas.size() + bake.glyphs.size() + bake.curves.size());
+            out.writeInt(payloads);
+            indexBytes.writeTo(out);
+            out.write(new byte[payloads - header]);
+            payloadBytes.writeTo(out);
+        }
+        System.out.printf("Baked %d formulas, %d texts and %d curves into %s%n", bake.formulas.size(), bake.glyphs.size(), bake.curves.size(), file);
+    }
+
+    static LaTeXCache.Formula findFormula(LaTeXCache.Key key) {
+        Bundle bundle = loaded;
+        Entry entry = bundle != null ? bundle.formulas.get(key) : null;
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer payload = bundle.payload(entry);
+        int width = payload.getInt();
+        int height = payload.getInt();
+        int imageWidth = payload.getInt();
+        int imageHeight = payload.getInt();
+        int[] pixels = new int[imageWidth * imageHeight];
+        payload.asIntBuffer().get(pixels);
+        // Copied into a raster of its own, an image that hands out its data array can no longer be accelerated
+        BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        image.getRaster().setDataElements(0, 0, imageWidth, imageHeight, pixels);
+        return new LaTeXCache.Formula(image, width, height);
+    }
+
+    static void record(LaTeXCache.Key key, LaTeXCache.Formula formula) {
+        Bake bake = baking;
+        if (bake != null) {
+            bake.formulas.put(key, formula);
+        }
+    }
+
+    static Text.Glyphs findGlyphs(String content, int size) {
+        Bundle bundle = loaded;
+        Entry entry = bundle != null ? bundle.glyphs.get(new GlyphsKey(content, size)) : null;
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer payload = bundle.payload(entry);
+        double width = payload.getDouble();
+        double leading = payload.getDouble();
+        Path2D.Float outline = new Path2D.Float(payload.getInt());
+        int segments = payload.getInt();
+        for (int i = 0; i < segments; i++) {
+            switch (payload.get()) {
+                case PathIterator.SEG_MOVETO -> outline.moveTo(payload.getFloat(), payload.getFloat());
+                case PathIterator.SEG_LINETO -> outline.lineTo(payload.getFloat(), payload.getFloat());
+                case PathIterator.SEG_QUADTO -> outline.quadTo(payload.getFloat(), payload.getFloat(), payload.getFloat(), payload.getFloat());
+                case PathIterator.SEG_CUBICTO -> outline.curveTo(payload.getFloat(), payload.getFloat(), payload.getFloat(),
+                        payload.getFloat(), payload.getFloat(), payload.getFloat());
+                default -> outline.closePath();
+            }
+        }
+        return new Text.Glyphs(outline, width, leading);
+    }
+
+    static void record(String content, int size, Text.Glyphs glyphs) {
+        Bake bake = baking;
+        if (bake != null) {
+            bake.glyphs.put(new GlyphsKey(content, size), glyphs);
+        }
+    }
+
+    static AdaptiveSampler.Curve findCurve(DoubleUnaryOperator function, double minX, double maxX, double visibleHeight, double deviceScale) {
+        Bundle bundle = loaded;
+        if (bundle == null || bundle.curves.isEmpty()) {
+            return null;
+        }
+        Entry entry = bundle.curves.get(new CurveKey(minX, maxX, visibleHeight, deviceScale, fingerprint(function, minX, maxX)));
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer payload = bundle.payload(entry);
+        int size = payload.getInt();
+        payload.position(8);
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        payload.asDoubleBuffer().get(xs).get(ys);
+        return new AdaptiveSampler.Curve(xs, ys, visibleHeight, deviceScale);
+    }
+
+    static void record(DoubleUnaryOperator function, double minX, double maxX, AdaptiveSampler.Curve curve) {
+        Bake bake = baking;
+        if (bake != null) {
+            bake.curves.put(new CurveKey(minX, maxX, curve.getVisibleHeight(), curve.getDeviceScale(), fingerprint(function, minX, maxX)), curve);
+        }
+    }
+
+    // Lambdas have no identity that survives a restart, so a curve is found again by what the function evaluates to.
+    // The sampled curve depends on nothing but these values, two functions that agree at every probe but differ in
+    // between are not told apart.
+    private static long fingerprint(DoubleUnaryOperator function, double minX, double maxX) {
+        long fingerprint = 1;
+        for (int i = 0; i < FINGERPRINT_POINTS; i++) {
+            double x = minX + (maxX - minX) * i / (FINGERPRINT_POINTS - 1);
+            fingerprint = fingerprint * 1_000_003 + Double.doubleToLongBits(function.applyAsDouble(x));
+        }
+        return fingerprint;
+    }
+
+    // CRC32 of the class file, which holds the scene code along with every expression and text written in it
+    private static long checksum(Class<?> script) throws IOException {
+        try (InputStream in = script.getResourceAsStream(script.getSimpleName() + ".class")) {
+            if (in == null) {
+                throw new IOException("Class file of " + script.getName() + " not found");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(in.readAllBytes());
+            return crc.getValue();
+        }
+    }
+
+    private static void putFormula(DataOutputStream out, LaTeXCache.Formula formula) throws IOException {
+        BufferedImage image = formula.getImage();
+        out.writeInt(formula.getWidth());
+        out.writeInt(formula.getHeight());
+        out.writeInt(image.getWidth());
+        out.writeInt(image.getHeight());
+        int[] pixels = (int[]) image.getRaster().getDataElements(0, 0, image.getWidth(), image.getHeight(), null);
+        for (int pixel : pixels) {
+            out.writeInt(pixel);
+        }
+    }
+
+    private static void putGlyphs(DataOutputStream out, Text.Glyphs glyphs) throws IOException {
+        out.writeDouble(glyphs.getWidth());
+        out.writeDouble(glyphs.getLeading());
+        PathIterator iterator = glyphs.getOutline().getPathIterator(null);
+        out.writeInt(iterator.getWindingRule());
+        ByteArrayOutputStream segmentBytes = new ByteArrayOutputStream();
+        DataOutputStream segments = new DataOutputStream(segmentBytes);
+        float[] coordinates = new float[6];
+        int count = 0;
+        for (; !iterator.isDone(); iterator.next()) {
+            int type = iterator.currentSegment(coordinates);
+            segments.writeByte(type);
+            int points = switch (type) {
+                case PathIterator.SEG_MOVETO, PathIterator.SEG_LINETO -> 1;
+                case PathIterator.SEG_QUADTO -> 2;
+                case PathIterator.SEG_CUBICTO -> 3;
+                default -> 0;
+            };
+            for (int i = 0; i < points * 2; i++) {
+                segments.writeFloat(coordinates[i]);
+            }
+            count++;
+        }
+        out.writeInt(count);
+        segmentBytes.writeTo(out);
+    }
+
+    private static void putCurve(DataOutputStream out, AdaptiveSampler.Curve curve) throws IOException {
+        out.writeInt(curve.size());
+        out.writeInt(0);
+        for (double x : curve.getXs()) {
+            out.writeDouble(x);
+        }
+        for (double y : curve.getYs()) {
+            out.writeDouble(y);
+        }
+    }
+
+    // Adds the payload written since start to the index and pads it to 8 bytes
+    private static void putEntry(DataOutputStream index, DataOutputStream payload, int start) throws IOException {
+        index.writeInt(start);
+        index.writeInt(payload.size() - start);
+        while (payload.size() % 8 != 0) {
+            payload.writeByte(0);
+        }
+    }
+
+    private static Entry getEntry(ByteBuffer index, int payloads) {
+        return new Entry(payloads + index.getInt(), index.getInt());
+    }
+
+    private static void putString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+package de.amethyst.mathvideo.engine;
+
+import java.awt.*;
+
+import static de.amethyst.mathvideo.engine.RenderMath.*;
+
+// Interpolates packed ARGB colours through HSB for one morph distance. The last pair of colours and its result are
+// kept, so constant colours (e.g. MonoColorGraph to MonoColorGraph) are converted once per frame instead of per segment.
+public class ColorInterpolator {
+    private final double distance;
+    private final boolean smoothInterpolate;
+    private final float[] startHSB = new float[3];
+    private final float[] targetHSB = new float[3];
+    private boolean cached = false;
+    private int start;
+    private int target;
+    private int result;
+
+    public ColorInterpolator(double distance, boolean smoothInterpolate) {
+        this.distance = distance;
+        this.smoothInterpolate = smoothInterpolate;
+    }
+
+    public int interpolate(int start, int target) {
+        if (this.cached && this.start == start && this.target == target) {
+            return this.result;
+        }
+        Color.RGBtoHSB((start >> 16) & 0xFF, (start >> 8) & 0xFF, start & 0xFF, this.startHSB);
+        Color.RGBtoHSB((target >> 16) & 0xFF, (target >> 8) & 0xFF, target & 0xFF, this.targetHSB);
+        float startHue = this.startHSB[0];
+        float targetHue = this.targetHSB[0];
+        // Adjust for Residual class of Hue Part 1
+        if (Math.abs(startHue - targetHue) > 0.5) {
+            if (startHue > targetHue) {
+                startHue -= 1;
+            } else {
+                targetHue -= 1;
+            }
+        }
+        double hue = this.interpolate(startHue, targetHue);
+        double saturation = this.interpolate(this.startHSB[1], this.targetHSB[1]);
+        double brightness = this.interpolate(this.startHSB[2], this.targetHSB[2]);
+        // Adjust for Residual class of Hue Part 2
+        if (hue < 0) {
+            hue += 1;
+        }
+
+        this.start = start;
+        this.target = target;
+        this.result = Color.HSBtoRGB((float) hue, (float) saturation, (float) brightness);
+        this.cached = true;
+        return this.result;
+    }
+
+    private double interpolate(double start, double stop) {
+        return this.smoothInterpolate ? cerp(this.distance, start, stop) : lerp(this.distance, start, stop);
+    }
+}
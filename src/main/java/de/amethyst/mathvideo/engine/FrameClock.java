@@ -0,0 +1,130 @@
+package de.amethyst.mathvideo.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Virtual clock that only moves when advance() is called. Scene threads sleeping on it are woken in lockstep with
+// the frames, so a scene produces the same frames on every run no matter how long rendering takes.
+public class FrameClock implements SceneClock {
+    public interface Scene {
+        void play() throws InterruptedException;
+    }
+
+    private static class Sleeper {
+        private final long wakeFrame;
+        private boolean woken = false;
+
+        private Sleeper(long wakeFrame) {
+            this.wakeFrame = wakeFrame;
+        }
+    }
+
+    private final double framerate;
+    private final List<Sleeper> sleepers = new ArrayList<>();
+    private long frame = 0;
+    private int running = 0;
+    private int scenes = 0;
+    private Throwable failure;
+
+    public FrameClock(double framerate) {
+        this.framerate = framerate;
+    }
+
+    public synchronized long getFrame() {
+        return this.frame;
+    }
+
+    @Override
+    public synchronized long nanoTime() {
+        return (long) (this.frame * 1_000_000_000L / this.framerate);
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        synchronized (this) {
+            long wakeFrame = this.frame + (long) Math.ceil(millis * this.framerate / 1000);
+            if (wakeFrame <= this.frame) {
+                return;
+            }
+            Sleeper sleeper = new Sleeper(wakeFrame);
+            this.sleepers.add(sleeper);
+            this.running--;
+            this.notifyAll();
+            try {
+                while (!sleeper.woken) {
+                    this.wait();
+                }
+            } catch (InterruptedException e) {
+                if (!sleeper.woken) {
+                    this.sleepers.remove(sleeper);
+                    this.running++;
+                }
+                throw e;
+            }
+        }
+    }
+
+    public synchronized void start(Scene scene) {
+        this.running++;
+        this.scenes++;
+        Thread thread = new Thread(() -> {
+            try {
+                scene.play();
+            } catch (Throwable t) {
+                synchronized (this) {
+                    this.failure = t;
+                }
+            } finally {
+                synchronized (this) {
+                    this.running--;
+                    this.scenes--;
+                    this.notifyAll();
+                }
+            }
+        }, "Scene");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (this.running > 0) {
+            this.wait();
+        }
+    }
+
+    public synchronized void advance() throws InterruptedException {
+        this.moveTo(this.frame + 1);
+        this.awaitIdle();
+    }
+
+    // Called from a scene thread, so unlike advance() it does not wait for the scenes to go idle
+    @Override
+    public synchronized void seek(long nanoTime) {
+        long frame = (long) Math.ceil(nanoTime * this.framerate / 1_000_000_000L);
+        if (frame > this.frame) {
+            this.moveTo(frame);
+        }
+    }
+
+    private void moveTo(long frame) {
+        this.frame = frame;
+        for (Iterator<Sleeper> iterator = this.sleepers.iterator(); iterator.hasNext();) {
+            Sleeper sleeper = iterator.next();
+            if (sleeper.wakeFrame <= this.frame) {
+                sleeper.woken = true;
+                this.running++;
+                iterator.remove();
+            }
+        }
+        this.notifyAll();
+    }
+
+    public synchronized boolean isFinished() {
+        return this.scenes == 0;
+    }
+
+    public synchronized Throwable getFailure() {
+        return this.failure;
+    }
+}
@@ -0,0 +1,48 @@
+package de.amethyst.mathvideo.engine;
+
+import de.amethyst.mathvideo.MathVideo;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("de.amethyst.mathvideo.FrameRender")
+@Label("Frame Render")
+@Description("One rendered frame, live or exported")
+@Category({"Math Video", "Rendering"})
+@StackTrace(false)
+public class FrameRenderEvent extends jdk.jfr.Event {
+    @Label("Frame")
+    private long frame;
+
+    @Label("Renderables")
+    private int renderables;
+
+    @Label("Animating")
+    @Description("Renderables drawn this frame because they are animating, the rest came from the static layer")
+    private int animating;
+
+    @Label("Budget")
+    @Timespan(Timespan.NANOSECONDS)
+    private long budget;
+
+    @Label("Overrun")
+    @Description("Time spent beyond the budget, 0 if the frame was on time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long overrun;
+
+    // Ends an event begun at start. Only ever costs more than the check when a recording has the event enabled
+    public void finish(long start, long frame, int renderables, int animating) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.frame = frame;
+            this.renderables = renderables;
+            this.animating = animating;
+            this.budget = (long) (1_000_000_000L / MathVideo.FRAMERATE);
+            this.overrun = Math.max(0, System.nanoTime() - start - this.budget);
+            this.commit();
+        }
+    }
+}
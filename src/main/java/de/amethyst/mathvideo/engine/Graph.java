@@ -1,17 +1,19 @@
 package de.amethyst.mathvideo.engine;
 
 import de.amethyst.mathvideo.MathVideo;
-import de.amethyst.mathvideo.ReflectionUtil;
 import lombok.*;
 import lombok.experimental.Accessors;
 
 import java.awt.*;
-import java.awt.geom.Point2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.ColorModel;
-import java.lang.reflect.Field;
+import java.awt.image.Raster;
 import java.time.Duration;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
 
 import static de.amethyst.mathvideo.engine.RenderMath.*;
 import static de.amethyst.mathvideo.MathVideo.*;
@@ -22,251 +24,439 @@ import static de.amethyst.mathvideo.MathVideo.*;
 
 @Accessors(chain = true)
 public class Graph implements AnimatableDeletable, Cloneable {
-    @Setter
-    @Getter
-    private Function<Double, Double> function;
+    // Everything a frame of the graph is drawn from. A state is never changed, every change publishes a new one, so a
+    // frame reads one consistent state without locking and finishing a morph is a swap to the target's state
+    @Value
+    @With
+    public static class State {
+        DoubleUnaryOperator function;
+        Paint paint;
+        int scale;
+        double width;
+        int minX;
+        int maxX;
+        int minY;
+        int maxY;
+        boolean smoothInterpolate;
+        Transition animation;
+        double animationPercentage;
+        Transition morph;
+        double morphPercentage;
+        // null unless a morph has been started
+        Graph morphTarget;
+        Transition deletion;
+        double deletionPercentage;
+
+        public double evaluate(double x) {
+            return this.function.applyAsDouble(x / this.scale) * this.scale;
+        }
 
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private Paint paint;
+        public boolean isMorphing() {
+            return this.morphTarget != null && this.morphPercentage < 1;
+        }
 
-    @Setter
-    @Getter
-    private int scale;
+        public int getSampleCount() {
+            return (int) Math.ceil((this.maxX - this.minX) / RESOLUTION) + 1;
+        }
 
-    @Setter
-    @Getter
-    private double width;
+        // Whether samples taken in the other state are the same as the ones this state would take
+        private boolean samplesLike(State other) {
+            return this.function == other.function && this.scale == other.scale && this.minX == other.minX && this.maxX == other.maxX;
+        }
+    }
 
-    @Setter
-    @Getter
-    private int minX;
+    // evaluate() sampled every RESOLUTION starting at origin
+    @Value
+    private static class Grid {
+        State state;
+        int origin;
+        double[] samples;
+    }
 
-    @Setter
-    @Getter
-    private int maxX;
+    // Adaptively sampled curve drawn while not morphing
+    @Value
+    private static class SampledCurve {
+        State state;
+        AdaptiveSampler.Curve curve;
+    }
 
-    @Setter
-    @Getter
-    private int minY = Integer.MIN_VALUE;
+    // How far a stroke of width 1 may reach past its points: half the width times the default miter limit of 10
+    private static final double STROKE_REACH = 5;
 
-    @Setter
-    @Getter
-    private int maxY = Integer.MAX_VALUE;
+    private static final AtomicReferenceFieldUpdater<Graph, State> STATE = AtomicReferenceFieldUpdater.newUpdater(Graph.class, State.class, "state");
 
-    @Setter
     @Getter
-    private boolean smoothInterpolate;
-
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private Duration animationDuration;
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private double animationPercentage = 1;
-
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private Duration morphDuration;
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private double morphPercentage = 1;
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private Graph morphTarget = this;
-
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private Duration deletionDuration;
-    @Setter(AccessLevel.PROTECTED)
-    @Getter(AccessLevel.PROTECTED)
-    private double deletionPercentage = 0;
-
-    public Graph(Function<Double, Double> function, Paint paint, double width, int minX, int maxX, int scale, boolean smoothInterpolate) {
-        this.setFunction(function);
-        this.setPaint(paint);
-        this.setWidth(width);
-        this.setMinX(minX);
-        this.setMaxX(maxX);
-        this.setScale(scale);
-        this.setSmoothInterpolate(smoothInterpolate);
+    private volatile State state;
+
+    // Caches remember the state they were computed in, one built from a state that has since been replaced is ignored
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile Grid grid;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile SampledCurve curve;
+
+    public Graph(DoubleUnaryOperator function, Paint paint, double width, int minX, int maxX, int scale, boolean smoothInterpolate) {
+        this.state = new State(function, paint, scale, width, minX, maxX, Integer.MIN_VALUE, Integer.MAX_VALUE, smoothInterpolate,
+                null, 1, null, 1, null, null, 0);
+    }
+
+    // Applies a change to whatever state is current, a change made on another thread at the same time is never lost
+    private Graph update(UnaryOperator<State> change) {
+        STATE.updateAndGet(this, change);
+        return this;
+    }
+
+    public DoubleUnaryOperator getFunction() {
+        return this.state.getFunction();
+    }
+
+    public Graph setFunction(DoubleUnaryOperator function) {
+        return this.update(state -> state.withFunction(function));
+    }
+
+    protected Paint getPaint() {
+        return this.state.getPaint();
+    }
+
+    protected Graph setPaint(Paint paint) {
+        return this.update(state -> state.withPaint(paint));
+    }
+
+    public int getScale() {
+        return this.state.getScale();
+    }
+
+    public Graph setScale(int scale) {
+        return this.update(state -> state.withScale(scale));
+    }
+
+    public double getWidth() {
+        return this.state.getWidth();
+    }
+
+    public Graph setWidth(double width) {
+        return this.update(state -> state.withWidth(width));
+    }
+
+    public int getMinX() {
+        return this.state.getMinX();
+    }
+
+    public Graph setMinX(int minX) {
+        return this.update(state -> state.withMinX(minX));
+    }
+
+    public int getMaxX() {
+        return this.state.getMaxX();
+    }
+
+    public Graph setMaxX(int maxX) {
+        return this.update(state -> state.withMaxX(maxX));
+    }
+
+    public int getMinY() {
+        return this.state.getMinY();
+    }
+
+    public Graph setMinY(int minY) {
+        return this.update(state -> state.withMinY(minY));
+    }
+
+    public int getMaxY() {
+        return this.state.getMaxY();
+    }
+
+    public Graph setMaxY(int maxY) {
+        return this.update(state -> state.withMaxY(maxY));
+    }
+
+    public boolean isSmoothInterpolate() {
+        return this.state.isSmoothInterpolate();
+    }
+
+    public Graph setSmoothInterpolate(boolean smoothInterpolate) {
+        return this.update(state -> state.withSmoothInterpolate(smoothInterpolate));
     }
 
     public double evaluate(double x) {
-        return this.getFunction().apply(x / this.getScale()) * this.getScale();
+        return this.state.evaluate(x);
+    }
+
+    protected double[] getSamples(State state, int origin, int count) {
+        Grid grid = this.grid;
+        if (grid == null || !grid.getState().samplesLike(state) || grid.getOrigin() != origin || grid.getSamples().length != count) {
+            grid = new Grid(state, origin, Sampling.grid(state::evaluate, origin, RESOLUTION, count));
+            this.grid = grid;
+        }
+        return grid.getSamples();
+    }
+
+    public int getSampleCount() {
+        return this.state.getSampleCount();
+    }
+
+    protected AdaptiveSampler.Curve getCurve(State state) {
+        SampledCurve curve = this.curve;
+        int height = MathVideo.getInstance().getHeight();
+        double deviceScale = MathVideo.getDeviceScale();
+        if (curve == null || !curve.getState().samplesLike(state) || curve.getCurve().getVisibleHeight() != height
+                || curve.getCurve().getDeviceScale() != deviceScale) {
+            curve = new SampledCurve(state, AdaptiveSampler.sample(state::evaluate, state.getMinX(), state.getMaxX(), height, deviceScale));
+            this.curve = curve;
+        }
+        return curve.getCurve();
+    }
+
+    // Number of points the current frame is drawn from
+    public int getDrawnSampleCount() {
+        State state = this.state;
+        return state.isMorphing() ? state.getSampleCount() : this.getCurve(state).size();
     }
 
     @Override
     public void animate(Duration duration) {
-        this.setAnimationDuration(duration);
-        this.setAnimationPercentage(0);
+        Transition animation = Transition.start(duration);
+        this.update(state -> state.withAnimation(animation).withAnimationPercentage(0));
         MathVideo.getRenderer().registerRenderable(this);
     }
 
     public void morph(Duration duration, Graph morphTarget) {
-        this.setMorphDuration(duration);
-        this.setMorphPercentage(0);
-        this.setMorphTarget(morphTarget);
+        Transition morph = Transition.start(duration);
+        this.update(state -> state.withMorph(morph).withMorphPercentage(0).withMorphTarget(morphTarget));
         MathVideo.getRenderer().registerRenderable(this);
     }
 
     public void morphWait(Duration duration, Graph morphTarget) throws InterruptedException {
         this.morph(duration, morphTarget);
-        Thread.sleep(duration.toMillis());
+        MathVideo.getClock().sleep(duration);
     }
 
     @Override
     public void render(Graphics2D g) {
-        double start = interpolate(this.getDeletionPercentage(), this.getMinX(), this.getMaxX());
-        double stop = interpolate(this.getAnimationPercentage(), this.getMinX(), this.getMaxX());
-        for (double i = start; i < stop; i += RESOLUTION) {
-            double y1 = interpolate(this.getMorphPercentage(), this.evaluate(i), this.getMorphTarget().evaluate(i));
-            double y2 = interpolate(this.getMorphPercentage(), this.evaluate(i + RESOLUTION), this.getMorphTarget().evaluate(i + RESOLUTION));
-
-            if (y1 > this.getMaxY() || y1 < this.getMinY()
-             || y2 > this.getMaxY() || y2 < this.getMinY()) {
-                continue;
-            }
-
-            int[] color = this.getColorAtPos(g, this.getPaint(), new Point2D.Double(i, y1));
-            int[] targetColor = this.getColorAtPos(g, this.getMorphTarget().getPaint(), new Point2D.Double(i, y1));
-            float[] startHSB = Color.RGBtoHSB(color[0], color[1], color[2], null);
-            float[] targetHSB = Color.RGBtoHSB(targetColor[0], targetColor[1], targetColor[2],null);
-            // Adjust for Residual class of Hue Part 1
-            if (Math.abs(startHSB[0] - targetHSB[0]) > 0.5) {
-                if (startHSB[0] > targetHSB[0]) {
-                    startHSB[0] -= 1;
-                } else {
-                    targetHSB[0] -= 1;
-                }
-            }
-            double[] interHSB = {
-                    interpolate(this.getMorphPercentage(), startHSB[0], targetHSB[0]),
-                    interpolate(this.getMorphPercentage(), startHSB[1], targetHSB[1]),
-                    interpolate(this.getMorphPercentage(), startHSB[2], targetHSB[2])};
-            // Adjust for Residual class of Hue Part 2
-            if (interHSB[0] < 0) {
-                interHSB[0] += 1;
-            }
-            Renderer.drawLine(g, new Color(Color.HSBtoRGB((float) interHSB[0], (float) interHSB[1], (float) interHSB[2])), this.getWidth(), new Point2D.Double(i, y1), new Point2D.Double(i + RESOLUTION, y2));
+        State state = this.state;
+        double start = interpolate(state, state.getDeletionPercentage(), state.getMinX(), state.getMaxX());
+        double stop = interpolate(state, state.getAnimationPercentage(), state.getMinX(), state.getMaxX());
+        g.setStroke(Renderer.getStroke(state.getWidth()));
+        // A tile only needs the segments its stroke can reach, the joins of those left out never get close enough to
+        // change a pixel inside the clip
+        Rectangle2D reach = null;
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            double margin = state.getWidth() * STROKE_REACH + 1;
+            reach = new Rectangle2D.Double(clip.x - margin, clip.y - margin, clip.width + 2 * margin, clip.height + 2 * margin);
+        }
+        if (state.isMorphing()) {
+            this.renderMorph(g, state, start, stop, reach);
+        } else {
+            this.renderCurve(g, state, start, stop, reach);
         }
-        updateAnimation();
-        updateMorph();
-        updateDeletion();
     }
 
-    @Override
-    public void animateDelete(Duration duration) {
-        this.setDeletionDuration(duration);
-        this.setDeletionPercentage(0);
+    private static boolean reaches(Rectangle2D reach, double x1, double y1, double x2, double y2) {
+        return reach == null || Math.max(x1, x2) >= reach.getMinX() && Math.min(x1, x2) <= reach.getMaxX()
+                && Math.max(y1, y2) >= reach.getMinY() && Math.min(y1, y2) <= reach.getMaxY();
     }
 
-    private void updateAnimation() {
-        if (this.isAnimationFinished()) {
-            return;
-        }
-        this.setAnimationPercentage(this.getAnimationPercentage() + 1 / (FRAMERATE * this.getAnimationDuration().toMillis() / 1000));
-    }
+    // The whole adaptively sampled curve is one path stroked with the graph's own paint
+    private void renderCurve(Graphics2D g, State state, double start, double stop, Rectangle2D reach) {
+        AdaptiveSampler.Curve curve = this.getCurve(state);
+        double[] xs = curve.getXs();
+        double[] ys = curve.getYs();
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, curve.size());
+        boolean pathEmpty = true;
+        boolean connected = false;
+        for (int k = 0; k + 1 < xs.length; k++) {
+            double x1 = xs[k];
+            double x2 = xs[k + 1];
+            if (x2 <= start) {
+                continue;
+            }
+            if (x1 >= stop) {
+                break;
+            }
+            double y1 = ys[k];
+            double y2 = ys[k + 1];
 
-    private void updateMorph() {
-        if (this.isMorphFinished()) {
-            return;
-        }
-        this.setMorphPercentage(this.getMorphPercentage() + 1 / (FRAMERATE * this.getMorphDuration().toMillis() / 1000));
-    }
+            if (y1 > state.getMaxY() || y1 < state.getMinY()
+             || y2 > state.getMaxY() || y2 < state.getMinY()
+             || !Double.isFinite(y1) || !Double.isFinite(y2)) {
+                connected = false;
+                continue;
+            }
 
-    private void updateDeletion() {
-        if (this.isDeletionFinished()) {
-            return;
+            // Segments cut by the reveal or deletion edge end exactly on it
+            if (x1 < start) {
+                y1 = lerp(invLerp(start, x1, x2), y1, y2);
+                x1 = start;
+            }
+            if (x2 > stop) {
+                y2 = lerp(invLerp(stop, x1, x2), y1, y2);
+                x2 = stop;
+            }
+            double userX1 = Renderer.toUserX(x1);
+            double userY1 = Renderer.toUserY(y1);
+            double userX2 = Renderer.toUserX(x2);
+            double userY2 = Renderer.toUserY(y2);
+            if (!reaches(reach, userX1, userY1, userX2, userY2)) {
+                connected = false;
+                continue;
+            }
+            if (!connected) {
+                path.moveTo(userX1, userY1);
+                connected = true;
+            }
+            path.lineTo(userX2, userY2);
+            pathEmpty = false;
+        }
+        if (!pathEmpty) {
+            g.setPaint(state.getPaint());
+            g.draw(path);
         }
-        this.setDeletionPercentage(this.getDeletionPercentage() + 1 / (FRAMERATE * this.getDeletionDuration().toMillis() / 1000));
     }
 
-    private boolean isAnimationFinished() {
-        if (this.getAnimationPercentage() >= 1) {
-            if (this.getAnimationPercentage() > 1) {
-                this.setAnimationPercentage(1);
+    // Source and target are sampled on the same fixed grid so they can be interpolated point by point, consecutive
+    // segments of the same interpolated colour share a path
+    private void renderMorph(Graphics2D g, State state, double start, double stop, Rectangle2D reach) {
+        Graph target = state.getMorphTarget();
+        State targetState = target.getState();
+        int count = state.getSampleCount();
+        double[] samples = this.getSamples(state, state.getMinX(), count);
+        double[] targetSamples = target.getSamples(targetState, state.getMinX(), count);
+        ColorInterpolator colors = new ColorInterpolator(state.getMorphPercentage(), state.isSmoothInterpolate());
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, count + 1);
+        int pathColor = 0;
+        boolean pathEmpty = true;
+        boolean connected = false;
+        for (int k = (int) ((start - state.getMinX()) / RESOLUTION); k + 1 < count; k++) {
+            double i = state.getMinX() + k * RESOLUTION;
+            if (i >= stop) {
+                break;
             }
-            return true;
-        }
+            double y1 = interpolate(state, state.getMorphPercentage(), samples[k], targetSamples[k]);
+            double y2 = interpolate(state, state.getMorphPercentage(), samples[k + 1], targetSamples[k + 1]);
 
-        if (this.getAnimationDuration().isZero()) {
-            this.setAnimationPercentage(1);
-            return true;
-        }
-
-        return false;
-    }
+            if (y1 > state.getMaxY() || y1 < state.getMinY()
+             || y2 > state.getMaxY() || y2 < state.getMinY()
+             || !Double.isFinite(y1) || !Double.isFinite(y2)) {
+                connected = false;
+                continue;
+            }
+            double userX1 = Renderer.toUserX(i);
+            double userY1 = Renderer.toUserY(y1);
+            double userX2 = Renderer.toUserX(i + RESOLUTION);
+            double userY2 = Renderer.toUserY(y2);
+            if (!reaches(reach, userX1, userY1, userX2, userY2)) {
+                connected = false;
+                continue;
+            }
 
-    private boolean isMorphFinished() {
-        if (this.getMorphPercentage() >= 1) {
-            if (this.getMorphPercentage() > 1) {
-                this.setMorphPercentage(1);
+            int color = colors.interpolate(this.getColorAt(state, i, y1), target.getColorAt(targetState, i, y1));
+            if (color != pathColor && !pathEmpty) {
+                g.setColor(new Color(pathColor));
+                g.draw(path);
+                path.reset();
+                pathEmpty = true;
+                connected = false;
             }
-            if (this.getMorphTarget() != this) {
-                copySelf();
+            pathColor = color;
+            if (!connected) {
+                path.moveTo(userX1, userY1);
+                connected = true;
             }
-            return true;
+            path.lineTo(userX2, userY2);
+            pathEmpty = false;
         }
-
-        if (this.getMorphDuration().isZero()) {
-            this.setMorphPercentage(1);
-            return true;
+        if (!pathEmpty) {
+            g.setColor(new Color(pathColor));
+            g.draw(path);
         }
-
-        return false;
     }
 
-    private boolean isDeletionFinished() {
-        if (this.getDeletionPercentage() >= 1) {
-            if (this.getDeletionPercentage() > 1) {
-                this.setDeletionPercentage(1);
-            }
+    @Override
+    public void update(long now) {
+        State state = STATE.updateAndGet(this, current -> advance(current, now));
+        if (state.getDeletion() != null && state.getDeletionPercentage() >= 1) {
             MathVideo.getRenderer().deleteRenderable(this);
-            return true;
         }
+    }
 
-        if (this.getDeletionDuration() == null) {
-            return true;
+    private static State advance(State state, long now) {
+        if (state.getAnimation() != null) {
+            state = state.withAnimationPercentage(state.getAnimation().progress(now));
         }
-
-        if (this.getDeletionDuration().isZero()) {
-            this.setDeletionPercentage(1);
-            return true;
+        if (state.getMorph() != null) {
+            state = state.withMorphPercentage(state.getMorph().progress(now));
+            if (state.getMorphPercentage() >= 1 && state.getMorphTarget() != null) {
+                // From here on the graph is its target. A target cloned from a graph may still carry that graph's morph
+                state = state.getMorphTarget().getState().withMorph(null).withMorphPercentage(1).withMorphTarget(null);
+            }
+        }
+        if (state.getDeletion() != null) {
+            state = state.withDeletionPercentage(state.getDeletion().progress(now));
         }
+        return state;
+    }
 
-        return false;
+    @Override
+    public boolean isAnimating() {
+        State state = this.state;
+        return state.getAnimationPercentage() < 1 || state.getMorphPercentage() < 1 || state.getDeletion() != null;
     }
 
-    private double interpolate(double distance, double start, double stop) {
-        return this.isSmoothInterpolate() ? cerp(distance, start, stop) : lerp(distance, start, stop);
+    // The revealed part of the x range and the y range points are drawn in, a morph may start one sample early
+    @Override
+    public Rectangle2D getBounds() {
+        State state = this.state;
+        double start = interpolate(state, state.getDeletionPercentage(), state.getMinX(), state.getMaxX());
+        double stop = interpolate(state, state.getAnimationPercentage(), state.getMinX(), state.getMaxX());
+        double reach = state.getWidth() * STROKE_REACH + RESOLUTION;
+        return new Rectangle2D.Double(Renderer.toUserX(start) - reach, Renderer.toUserY(state.getMaxY()) - reach,
+                stop - start + 2 * reach, (double) state.getMaxY() - state.getMinY() + 2 * reach);
     }
 
-    private int[] getColorAtPos(Graphics2D g, Paint paint, Point2D pos) {
-        AffineTransform userSpaceToDeviceSpace = g.getTransform();
-        PaintContext paintContext = paint.createContext(
-                ColorModel.getRGBdefault(),
-                g.getDeviceConfiguration().getBounds(),
-                MathVideo.getInstance().getBounds(),
-                g.getTransform(),
-                g.getRenderingHints());
-        Point2D userSpace = Renderer.coordinateSpaceToUserSpace(pos);
-        Point2D deviceSpace = userSpaceToDeviceSpace.transform(userSpace, null);
-        return paintContext.getRaster((int) deviceSpace.getX(), (int) deviceSpace.getY(), (int) RESOLUTION, (int) RESOLUTION).getPixel(0, 0, (int[]) null);
+    @Override
+    public void animateDelete(Duration duration) {
+        Transition deletion = Transition.start(duration);
+        this.update(state -> state.withDeletion(deletion).withDeletionPercentage(0));
     }
 
-    private void copySelf() {
-        Iterable<Field> fields = ReflectionUtil.getFieldsUpTo(this.getClass(), Object.class);
-        for (Field field : fields) {
-            try {
-                field.setAccessible(true);
-                field.set(this, field.get(this.getMorphTarget()));
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
+    private static double interpolate(State state, double distance, double start, double stop) {
+        return state.isSmoothInterpolate() ? cerp(distance, start, stop) : lerp(distance, start, stop);
+    }
+
+    // Packed ARGB of the state's paint at a point in coordinate space
+    protected int getColorAt(State state, double x, double y) {
+        if (state.getPaint() instanceof Color color) {
+            return color.getRGB();
+        }
+        Rectangle bounds = MathVideo.getInstance().getBounds();
+        PaintContext paintContext = state.getPaint().createContext(ColorModel.getRGBdefault(), bounds, bounds, new AffineTransform(), new RenderingHints(null));
+        Raster raster = paintContext.getRaster((int) Renderer.toUserX(x), (int) Renderer.toUserY(y), 1, 1);
+        int argb = paintContext.getColorModel().getRGB(raster.getDataElements(0, 0, null));
+        paintContext.dispose();
+        return argb;
+    }
+
+    // Fills lazily built caches on the calling thread, before the graph is handed to other render threads
+    protected void prepareCaches(State state, int origin, int count) {
+        this.getSamples(state, origin, count);
+    }
+
+    @Override
+    public Graph snapshot() {
+        // Fill the caches on the live graph so every later snapshot shares them
+        State state = this.state;
+        if (state.isMorphing()) {
+            int count = state.getSampleCount();
+            this.prepareCaches(state, state.getMinX(), count);
+            state.getMorphTarget().prepareCaches(state.getMorphTarget().getState(), state.getMinX(), count);
+        } else {
+            this.getCurve(state);
         }
-        this.setFunction(this.getMorphTarget().getFunction());
-        this.setMorphTarget(this);
+        Graph snapshot = this.clone();
+        snapshot.state = state;
+        return snapshot;
     }
 
     @Override
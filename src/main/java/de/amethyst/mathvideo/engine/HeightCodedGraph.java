@@ -1,35 +1,49 @@
 package de.amethyst.mathvideo.engine;
 
 import de.amethyst.mathvideo.MathVideo;
+import lombok.Value;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
 import static de.amethyst.mathvideo.engine.RenderMath.*;
 
 public class HeightCodedGraph extends Graph {
-    public HeightCodedGraph(Function<Double, Double> function, Map<Integer, Color> colorCodes, double width) {
+    // Packed ARGB per user space row of the paint it was built from, rebuilt once the paint is replaced
+    @Value
+    private static class ColorTable {
+        Paint paint;
+        int[] rows;
+    }
+
+    private volatile ColorTable colorTable;
+
+    public HeightCodedGraph(DoubleUnaryOperator function, Map<Integer, Color> colorCodes, double width) {
         this(function, colorCodes, width, (int) (MathVideo.getInstance().getWidth() * -0.5), (int) (MathVideo.getInstance().getWidth() * 0.5), 1, true);
     }
 
-    public HeightCodedGraph(Function<Double, Double> function, Map<Integer, Color> colorCodes, double width, int scale) {
+    public HeightCodedGraph(DoubleUnaryOperator function, Map<Integer, Color> colorCodes, double width, int scale) {
         this(function, colorCodes, width, (int) (MathVideo.getInstance().getWidth() * -0.5), (int) (MathVideo.getInstance().getWidth() * 0.5), scale, true);
     }
 
-    public HeightCodedGraph(Function<Double, Double> function, Map<Integer, Color> colorCodes, double width, int start, int stop) {
+    public HeightCodedGraph(DoubleUnaryOperator function, Map<Integer, Color> colorCodes, double width, int start, int stop) {
         this(function, colorCodes, width, start, stop, 1, true);
     }
 
-    public HeightCodedGraph(Function<Double, Double> function, Map<Integer, Color> colorCodes, double width, int start, int stop, int scale) {
+    public HeightCodedGraph(DoubleUnaryOperator function, Map<Integer, Color> colorCodes, double width, int start, int stop, int scale) {
         this(function, colorCodes, width, start, stop, scale, true);
     }
 
-    public HeightCodedGraph(Function<Double, Double> function, Map<Integer, Color> colorCodes, double width, int start, int stop, int scale, boolean smoothInterpolate) {
+    public HeightCodedGraph(DoubleUnaryOperator function, Map<Integer, Color> colorCodes, double width, int start, int stop, int scale, boolean smoothInterpolate) {
         super(function, generatePaint(colorCodes, scale), width, start, stop, scale, smoothInterpolate);
     }
 
@@ -38,6 +52,45 @@ public class HeightCodedGraph extends Graph {
         return this;
     }
 
+    @Override
+    protected int getColorAt(State state, double x, double y) {
+        int[] colorTable = this.getColorTable(state.getPaint());
+        int row = (int) Renderer.toUserY(y);
+        return colorTable[Math.max(0, Math.min(colorTable.length - 1, row))];
+    }
+
+    @Override
+    protected void prepareCaches(State state, int origin, int count) {
+        super.prepareCaches(state, origin, count);
+        this.getColorTable(state.getPaint());
+    }
+
+    private int[] getColorTable(Paint paint) {
+        ColorTable cached = this.colorTable;
+        if (cached != null && cached.getPaint() == paint) {
+            return cached.getRows();
+        }
+        int height = Math.max(1, MathVideo.getInstance().getHeight());
+        int[] colorTable = new int[height];
+        if (paint instanceof Color color) {
+            Arrays.fill(colorTable, color.getRGB());
+        } else {
+            // The gradient only varies with height, so one column of the paint covers every x
+            Rectangle bounds = new Rectangle(0, 0, 1, height);
+            PaintContext paintContext = paint.createContext(ColorModel.getRGBdefault(), bounds, bounds, new AffineTransform(), new RenderingHints(null));
+            Raster raster = paintContext.getRaster(0, 0, 1, height);
+            ColorModel colorModel = paintContext.getColorModel();
+            Object pixel = null;
+            for (int row = 0; row < height; row++) {
+                pixel = raster.getDataElements(0, row, pixel);
+                colorTable[row] = colorModel.getRGB(pixel);
+            }
+            paintContext.dispose();
+        }
+        this.colorTable = new ColorTable(paint, colorTable);
+        return colorTable;
+    }
+
     private static Paint generatePaint(Map<Integer, Color> colorCodes, int scale) throws IllegalArgumentException {
         if (colorCodes.isEmpty()) {
             throw new IllegalArgumentException("colorCodes must have at least 1 element!");
@@ -1,76 +1,60 @@
 package de.amethyst.mathvideo.engine;
 
 import de.amethyst.mathvideo.MathVideo;
-import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
+import lombok.Value;
+import lombok.With;
 import lombok.experimental.Accessors;
 import org.scilab.forge.jlatexmath.TeXConstants;
-import org.scilab.forge.jlatexmath.TeXFormula;
-import org.scilab.forge.jlatexmath.TeXIcon;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.time.Duration;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
 
-import static de.amethyst.mathvideo.MathVideo.FRAMERATE;
 import static de.amethyst.mathvideo.MathVideo.GRAY;
 import static de.amethyst.mathvideo.engine.RenderMath.*;
 import static java.lang.Math.*;
 
 @Accessors(chain = true)
-public class LaTeX implements AnimatableDeletable {
+public class LaTeX implements AnimatableDeletable, Cloneable {
     public enum Alignment {
         LEFT, CENTER, RIGHT
     }
-    @Setter
-    @Getter
-    private String laTeX = "";
 
-    @Setter
-    @Getter
-    private Color color;
+    // Everything a frame of the formula is drawn from, replaced as a whole on every change like Graph.State
+    @Value
+    @With
+    public static class State {
+        String laTeX;
+        Color color;
+        Point2D position;
+        int scale;
+        Alignment alignment;
+        boolean smoothInterpolate;
+        Transition animation;
+        double animationPercentage;
+        Transition deletion;
+        double deletionPercentage;
+        // Formula faded in once the deletion that starts a morph has finished
+        String morphTargetLaTeX;
+        Duration morphDuration;
+        boolean morph;
 
-    @Setter
-    @Getter
-    private Point2D position;
+        private LaTeXCache.Key getKey(String laTeX) {
+            return new LaTeXCache.Key(laTeX, this.scale, TeXConstants.STYLE_DISPLAY, this.color.getRGB() & 0xFFFFFF, MathVideo.getDeviceScale());
+        }
+    }
 
-    @Setter
-    @Getter
-    private int scale;
+    private static final AtomicReferenceFieldUpdater<LaTeX, State> STATE = AtomicReferenceFieldUpdater.newUpdater(LaTeX.class, State.class, "state");
 
-    @Setter
     @Getter
-    private Alignment alignment;
+    private volatile State state;
 
-    @Setter
-    @Getter
-    private boolean smoothInterpolate;
-
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private Duration animationDuration;
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private double animationPercentage = 1;
-
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private Duration deletionDuration;
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private double deletionPercentage = 0;
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private String morphTargetLaTeX;
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private Duration morphDuration;
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private boolean morph = false;
+    // Looked up ahead of time by snapshot(), so parallel frame renderers never touch the cache
+    private LaTeXCache.Formula preparedFormula;
 
 
     public LaTeX(String laTeX, Color color, Point2D position) {
@@ -86,126 +70,217 @@ public class LaTeX implements AnimatableDeletable {
     }
 
     public LaTeX(String laTeX, Color color, Point2D position, int scale, Alignment alignment, boolean smoothInterpolate) {
-        this.setLaTeX(laTeX);
-        this.setColor(color);
-        this.setPosition(position);
-        this.setScale(scale);
-        this.setAlignment(alignment);
-        this.setSmoothInterpolate(smoothInterpolate);
+        this.state = new State(laTeX, color, position, scale, alignment, smoothInterpolate, null, 1, null, 0, null, null, false);
+        this.prefetch(laTeX);
+    }
+
+    private LaTeX update(UnaryOperator<State> change) {
+        STATE.updateAndGet(this, change);
+        return this;
+    }
+
+    public String getLaTeX() {
+        return this.state.getLaTeX();
+    }
+
+    public LaTeX setLaTeX(String laTeX) {
+        this.update(state -> state.withLaTeX(laTeX));
+        this.prefetch(laTeX);
+        return this;
+    }
+
+    public Color getColor() {
+        return this.state.getColor();
+    }
+
+    public LaTeX setColor(Color color) {
+        return this.update(state -> state.withColor(color));
+    }
+
+    public Point2D getPosition() {
+        return this.state.getPosition();
+    }
+
+    public LaTeX setPosition(Point2D position) {
+        return this.update(state -> state.withPosition(position));
+    }
+
+    public int getScale() {
+        return this.state.getScale();
+    }
+
+    public LaTeX setScale(int scale) {
+        return this.update(state -> state.withScale(scale));
+    }
+
+    public Alignment getAlignment() {
+        return this.state.getAlignment();
+    }
+
+    public LaTeX setAlignment(Alignment alignment) {
+        return this.update(state -> state.withAlignment(alignment));
+    }
+
+    public boolean isSmoothInterpolate() {
+        return this.state.isSmoothInterpolate();
+    }
+
+    public LaTeX setSmoothInterpolate(boolean smoothInterpolate) {
+        return this.update(state -> state.withSmoothInterpolate(smoothInterpolate));
+    }
+
+    public void prefetch(String laTeX) {
+        LaTeXCache.prefetch(this.state.getKey(laTeX));
     }
 
     @Override
     public void render(Graphics2D g) {
-        TeXFormula formula = new TeXFormula(this.getLaTeX());
-        TeXIcon icon = formula.createTeXIcon(TeXConstants.STYLE_DISPLAY, this.getScale());
-        Color renderColor = new Color(this.getColor().getRed(), this.getColor().getGreen(), this.getColor().getBlue(),
-                (int) interpolate(max(0, this.getAnimationPercentage() - this.getDeletionPercentage()), 0, this.getColor().getAlpha()));
-        icon.setForeground(renderColor);
+        State state = this.state;
+        int alpha = (int) interpolate(state, max(0, state.getAnimationPercentage() - state.getDeletionPercentage()), 0, state.getColor().getAlpha());
+        if (alpha <= 0) {
+            return;
+        }
+        LaTeXCache.Formula formula = this.getPreparedFormula(state);
+        Point2D renderPosition = getRenderPosition(state, formula);
+        // Fades blend the cached raster instead of laying the formula out again in a new colour
+        Composite composite = g.getComposite();
+        if (alpha < 255) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha / 255f));
+        }
+        double deviceScale = MathVideo.getDeviceScale();
+        if (deviceScale == 1) {
+            g.drawImage(formula.getImage(), (int) renderPosition.getX(), (int) renderPosition.getY(), null);
+        } else {
+            // The raster already has the device's resolution, undo the scale so its pixels land one to one
+            AffineTransform transform = g.getTransform();
+            g.translate((int) renderPosition.getX(), (int) renderPosition.getY());
+            g.scale(1 / deviceScale, 1 / deviceScale);
+            g.drawImage(formula.getImage(), 0, 0, null);
+            g.setTransform(transform);
+        }
+        g.setComposite(composite);
+    }
+
+    @Override
+    public Rectangle2D getBounds() {
+        State state = this.state;
+        LaTeXCache.Formula formula = this.getPreparedFormula(state);
+        Point2D renderPosition = getRenderPosition(state, formula);
+        double deviceScale = MathVideo.getDeviceScale();
+        return new Rectangle2D.Double((int) renderPosition.getX(), (int) renderPosition.getY(),
+                formula.getImage().getWidth() / deviceScale, formula.getImage().getHeight() / deviceScale);
+    }
 
-        Point2D renderPosition = this.getPosition();
+    // Top left corner of the formula in user space
+    private static Point2D getRenderPosition(State state, LaTeXCache.Formula formula) {
+        Point2D renderPosition = state.getPosition();
         AffineTransform aligner;
-        switch (this.getAlignment()) {
+        switch (state.getAlignment()) {
             case CENTER -> {
-                aligner = AffineTransform.getTranslateInstance(icon.getIconWidth() / -2.0, icon.getIconHeight() / 2.0);
+                aligner = AffineTransform.getTranslateInstance(formula.getWidth() / -2.0, formula.getHeight() / 2.0);
                 renderPosition = aligner.transform(renderPosition, null);
             }
             case RIGHT -> {
-                aligner = AffineTransform.getTranslateInstance(-icon.getIconWidth(), -icon.getIconHeight());
+                aligner = AffineTransform.getTranslateInstance(-formula.getWidth(), -formula.getHeight());
                 renderPosition = aligner.transform(renderPosition, null);
             }
         }
-        renderPosition = Renderer.coordinateSpaceToUserSpace(renderPosition);
-        icon.paintIcon(null, g, (int) renderPosition.getX(), (int) renderPosition.getY());
-        updateAnimation();
-        updateDeletion(g);
+        return Renderer.coordinateSpaceToUserSpace(renderPosition);
     }
 
-    private void updateAnimation() {
-        if (this.getAnimationPercentage() >= 1) {
-            if (this.getAnimationPercentage() > 1) {
-                this.setAnimationPercentage(1);
-            }
-            if (this.isMorph()) {
-                this.setMorphDuration(null);
-                this.setMorphTargetLaTeX(null);
-                this.setMorph(false);
-            }
-            return;
+    @Override
+    public void update(long now) {
+        State state = STATE.updateAndGet(this, current -> advance(current, now));
+        if (state.getDeletion() != null && state.getDeletionPercentage() >= 1) {
+            MathVideo.getRenderer().deleteRenderable(this);
         }
-
-        this.setAnimationPercentage(this.getAnimationPercentage() + 1 / (FRAMERATE * this.getAnimationDuration().toMillis() / 1000));
     }
 
-    private void updateDeletion(Graphics2D g) {
-        if (this.getDeletionDuration() == null) { // Deletion hasn't started
-            return;
-        }
-
-        if (this.isDeletionFinished()) {
-            g.setColor(new Color(0, 0, 0, 0));
-            if (this.getMorphTargetLaTeX() != null) {
-                this.setLaTeX(this.getMorphTargetLaTeX());
-                this.setDeletionDuration(null);
-                this.setDeletionPercentage(0);
-                this.setMorph(true);
-                this.animate(this.getMorphDuration().dividedBy(2));
+    private static State advance(State state, long now) {
+        if (state.getAnimation() != null) {
+            state = state.withAnimationPercentage(state.getAnimation().progress(now));
+            if (state.getAnimationPercentage() >= 1 && state.isMorph()) {
+                state = state.withMorphDuration(null).withMorphTargetLaTeX(null).withMorph(false);
             }
-            return;
         }
-
-        this.setDeletionPercentage(this.getDeletionPercentage() + 1 / (FRAMERATE * this.getDeletionDuration().toMillis() / 1000));
-    }
-
-    private boolean isDeletionFinished() {
-        if (this.getDeletionPercentage() >= 1) {
-            if (this.getDeletionPercentage() > 1) {
-                this.setDeletionPercentage(1);
-            }
-            if (this.getMorphTargetLaTeX() != null) {
-                return true;
-            }
-            MathVideo.getRenderer().deleteRenderable(this);
-            return true;
+        if (state.getDeletion() == null) { // Deletion hasn't started
+            return state;
         }
-
-        if (this.getDeletionDuration() == null) {
-            return true;
+        state = state.withDeletionPercentage(state.getDeletion().progress(now));
+        if (state.getDeletionPercentage() < 1 || state.getMorphTargetLaTeX() == null) {
+            return state;
         }
+        // Second half of a morph fades the target in, starting exactly where the fade out ended. The target was
+        // prefetched when the morph started
+        Transition fadeIn = new Transition(state.getDeletion().getEnd(), state.getMorphDuration().dividedBy(2));
+        state = state.withLaTeX(state.getMorphTargetLaTeX())
+                .withDeletion(null)
+                .withDeletionPercentage(0)
+                .withMorph(true)
+                .withAnimation(fadeIn);
+        return advance(state, now);
+    }
 
-        if (this.getDeletionDuration().isZero()) {
-            this.setDeletionPercentage(1);
-            return true;
-        }
+    @Override
+    public boolean isAnimating() {
+        State state = this.state;
+        return state.getAnimationPercentage() < 1 || state.getDeletion() != null || state.isMorph();
+    }
+
+    private LaTeXCache.Formula getPreparedFormula(State state) {
+        return this.preparedFormula != null ? this.preparedFormula : getFormula(state);
+    }
 
-        return false;
+    private static LaTeXCache.Formula getFormula(State state) {
+        return LaTeXCache.get(state.getKey(state.getLaTeX()));
     }
 
     @Override
     public void animate(Duration duration) {
-        this.setAnimationDuration(duration);
-        this.setAnimationPercentage(0);
+        Transition animation = Transition.start(duration);
+        this.update(state -> state.withAnimation(animation).withAnimationPercentage(0));
         MathVideo.getRenderer().registerRenderable(this);
     }
 
     @Override
     public void animateDelete(Duration duration) {
-        this.setDeletionDuration(duration);
-        this.setDeletionPercentage(0);
+        Transition deletion = Transition.start(duration);
+        this.update(state -> state.withDeletion(deletion).withDeletionPercentage(0));
         MathVideo.getRenderer().registerRenderable(this);
     }
 
     public void morph(Duration duration, String targetLaTeX) {
-        this.setMorphDuration(duration);
-        this.setMorphTargetLaTeX(targetLaTeX);
-        this.animateDelete(duration.dividedBy(2));
+        this.prefetch(targetLaTeX);
+        Transition deletion = Transition.start(duration.dividedBy(2));
+        this.update(state -> state.withMorphDuration(duration).withMorphTargetLaTeX(targetLaTeX)
+                .withDeletion(deletion).withDeletionPercentage(0));
+        MathVideo.getRenderer().registerRenderable(this);
     }
 
     public void morphWait(Duration duration, String targetLatTeX) throws InterruptedException {
         morph(duration, targetLatTeX);
-        Thread.sleep(duration.dividedBy(2).toMillis());
+        MathVideo.getClock().sleep(duration.dividedBy(2));
     }
 
-    private double interpolate(double distance, double start, double stop) {
-        return this.isSmoothInterpolate() ? cerp(distance, start, stop) : lerp(distance, start, stop);
+    private static double interpolate(State state, double distance, double start, double stop) {
+        return state.isSmoothInterpolate() ? cerp(distance, start, stop) : lerp(distance, start, stop);
+    }
+
+    @Override
+    public LaTeX snapshot() {
+        State state = this.state;
+        LaTeX snapshot = this.clone();
+        snapshot.state = state;
+        snapshot.preparedFormula = getFormula(state);
+        return snapshot;
+    }
+
+    @Override
+    public LaTeX clone() {
+        try {
+            return (LaTeX) super.clone();
+        } catch (CloneNotSupportedException ignored) {
+            return null;
+        }
     }
 }
@@ -0,0 +1,120 @@
+package de.amethyst.mathvideo.engine;
+
+import de.amethyst.mathvideo.MathVideo;
+import lombok.Value;
+import org.scilab.forge.jlatexmath.TeXFormula;
+import org.scilab.forge.jlatexmath.TeXIcon;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Parsed, laid out and rasterised formulas, least recently used ones are dropped once CAPACITY is exceeded
+public class LaTeXCache {
+    private static final int CAPACITY = 64;
+
+    @Value
+    public static class Key {
+        String laTeX;
+        int scale;
+        int style;
+        int rgb;
+        double deviceScale;
+    }
+
+    // The image is rasterised in device pixels, width and height are in user space
+    @Value
+    public static class Formula {
+        BufferedImage image;
+        int width;
+        int height;
+    }
+
+    private static final Map<Key, Formula> formulas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Formula> eldest) {
+            return this.size() > CAPACITY;
+        }
+    };
+
+    private static final Set<Key> pending = new HashSet<>();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final ExecutorService workers = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "LaTeX");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Lays the formula out on a worker so it is ready by the time it is first rendered
+    public static void prefetch(Key key) {
+        synchronized (LaTeXCache.class) {
+            if (formulas.containsKey(key) || !pending.add(key)) {
+                return;
+            }
+        }
+        workers.execute(() -> {
+            Formula formula = null;
+            try {
+                formula = rasterise(key);
+            } catch (RuntimeException ignored) {
+                // Invalid LaTeX is reported when the render thread lays it out itself
+            }
+            synchronized (LaTeXCache.class) {
+                pending.remove(key);
+                if (formula != null) {
+                    formulas.put(key, formula);
+                }
+            }
+        });
+    }
+
+    // Never waits for a worker: a formula that isn't ready yet is laid out right here and counted as a miss
+    public static Formula get(Key key) {
+        synchronized (LaTeXCache.class) {
+            Formula formula = formulas.get(key);
+            if (formula != null) {
+                return formula;
+            }
+        }
+        System.out.printf("LaTeX cache miss #%d: %s%n", misses.incrementAndGet(), key.getLaTeX());
+        Formula formula = rasterise(key);
+        synchronized (LaTeXCache.class) {
+            formulas.put(key, formula);
+        }
+        return formula;
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    private static Formula rasterise(Key key) {
+        Formula formula = AssetBundle.findFormula(key);
+        if (formula == null) {
+            formula = layOut(key);
+        }
+        AssetBundle.record(key, formula);
+        return formula;
+    }
+
+    private static Formula layOut(Key key) {
+        // Laid out at the device's font size instead of scaling a 1080p raster up, so larger exports get sharp glyphs
+        TeXIcon icon = new TeXFormula(key.getLaTeX()).createTeXIcon(key.getStyle(), (float) (key.getScale() * key.getDeviceScale()));
+        icon.setForeground(new Color(key.getRgb()));
+        int width = icon.getIconWidth();
+        int height = icon.getIconHeight();
+        BufferedImage image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = image.createGraphics();
+        MathVideo.applyRenderingHints(g);
+        icon.paintIcon(null, g, 0, 0);
+        g.dispose();
+        return new Formula(image, (int) Math.ceil(width / key.getDeviceScale()), (int) Math.ceil(height / key.getDeviceScale()));
+    }
+}
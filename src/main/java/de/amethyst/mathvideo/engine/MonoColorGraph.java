@@ -5,26 +5,26 @@ import de.amethyst.mathvideo.MathVideo;
 import java.awt.*;
 import java.util.Collections;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
 public class MonoColorGraph extends HeightCodedGraph {
-    public MonoColorGraph(Function<Double, Double> function, Color paint, double width) {
+    public MonoColorGraph(DoubleUnaryOperator function, Color paint, double width) {
         this(function, paint, width, (int) (MathVideo.getInstance().getWidth() * -0.5), (int) (MathVideo.getInstance().getWidth() * 0.5), 1, true);
     }
 
-    public MonoColorGraph(Function<Double, Double> function, Color paint, double width, int scale) {
+    public MonoColorGraph(DoubleUnaryOperator function, Color paint, double width, int scale) {
         this(function, paint, width, (int) (MathVideo.getInstance().getWidth() * -0.5), (int) (MathVideo.getInstance().getWidth() * 0.5), scale, true);
     }
 
-    public MonoColorGraph(Function<Double, Double> function, Color paint, double width, int start, int stop) {
+    public MonoColorGraph(DoubleUnaryOperator function, Color paint, double width, int start, int stop) {
         this(function, paint, width, start, stop, 1, true);
     }
 
-    public MonoColorGraph(Function<Double, Double> function, Color paint, double width, int start, int stop, int scale) {
+    public MonoColorGraph(DoubleUnaryOperator function, Color paint, double width, int start, int stop, int scale) {
         this(function, paint, width, start, stop, scale, true);
     }
 
-    public MonoColorGraph(Function<Double, Double> function, Color color, double width, int start, int stop, int scale, boolean smoothInterpolate) {
+    public MonoColorGraph(DoubleUnaryOperator function, Color color, double width, int start, int stop, int scale, boolean smoothInterpolate) {
         super(function, Collections.singletonMap(0, color), width, start, stop, scale, smoothInterpolate);
     }
 
@@ -0,0 +1,30 @@
+package de.amethyst.mathvideo.engine;
+
+import java.util.concurrent.TimeUnit;
+
+public class RealTimeClock implements SceneClock {
+    private volatile long offset = 0;
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime() + this.offset;
+    }
+
+    @Override
+    public synchronized void sleep(long millis) throws InterruptedException {
+        // Sleeps against this clock rather than the system one, so a seek past the deadline ends the sleep early
+        long deadline = this.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (long remaining; (remaining = deadline - this.nanoTime()) > 0;) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    @Override
+    public synchronized void seek(long nanoTime) {
+        long skipped = nanoTime - this.nanoTime();
+        if (skipped > 0) {
+            this.offset += skipped;
+            this.notifyAll();
+        }
+    }
+}
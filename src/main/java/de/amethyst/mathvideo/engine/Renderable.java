@@ -3,11 +3,38 @@ package de.amethyst.mathvideo.engine;
 import de.amethyst.mathvideo.MathVideo;
 
 import java.awt.*;
+import java.awt.geom.Rectangle2D;
 
 
 public interface Renderable {
     void render(Graphics2D g);
 
+    // Brings the state up to the given scene time, called on the render thread before the frame is drawn
+    default void update(long now) {
+    }
+
+    // Whether the output can still change from frame to frame, renderables that are not animating may be cached
+    default boolean isAnimating() {
+        return true;
+    }
+
+    // Immutable value the current output is drawn from, replaced by a new one on every change. Renderables without one
+    // are assumed to only change while they are animating
+    default Object getState() {
+        return null;
+    }
+
+    // Area of the frame in user space the current state may draw into, null if that isn't known. Tiles outside of it
+    // skip the renderable
+    default Rectangle2D getBounds() {
+        return null;
+    }
+
+    // Frozen copy of the current state which can be rendered on another thread while this one keeps animating
+    default Renderable snapshot() {
+        return this;
+    }
+
     default void draw() {
         MathVideo.getRenderer().registerRenderable(this);
     }
@@ -0,0 +1,43 @@
+package de.amethyst.mathvideo.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("de.amethyst.mathvideo.RenderableRender")
+@Label("Renderable Render")
+@Description("One Renderable.render call")
+@Category({"Math Video", "Rendering"})
+@StackTrace(false)
+public class RenderableRenderEvent extends jdk.jfr.Event {
+    @Label("Type")
+    private String type;
+
+    @Label("Animating")
+    private boolean animating;
+
+    @Label("Sample Count")
+    @Description("Function samples drawn by a graph, 0 for anything else")
+    private int sampleCount;
+
+    @Label("LaTeX Hash")
+    @Description("Hash of the LaTeX source of a formula, 0 for anything else")
+    private int laTeXHash;
+
+    // Ends an event begun before the render call, fields are only filled in when a recording wants the event
+    public void finish(Renderable renderable) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.type = renderable.getClass().getSimpleName();
+            this.animating = renderable.isAnimating();
+            if (renderable instanceof Graph graph) {
+                this.sampleCount = graph.getDrawnSampleCount();
+            } else if (renderable instanceof LaTeX laTeX) {
+                this.laTeXHash = laTeX.getLaTeX().hashCode();
+            }
+            this.commit();
+        }
+    }
+}
@@ -8,63 +8,235 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.VolatileImage;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @ToString
 @EqualsAndHashCode
 public class Renderer {
+    private static final Map<Float, BasicStroke> STROKES = new ConcurrentHashMap<>();
 
+    // renderables and renderableIndex belong to the render thread, other threads only ever touch the lock-free queues
     private final List<Renderable> renderables = new ArrayList<>();
-    private final List<Runnable> renderRegisterQueue = new ArrayList<>();
-    private final List<Runnable> renderDeletionQueue = new ArrayList<>();
+    private final Set<Renderable> renderableIndex = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Queue<Renderable> renderRegisterQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<Renderable> renderDeletionQueue = new ConcurrentLinkedQueue<>();
+    private final List<Timeline.Playback> playbacks = new ArrayList<>();
+    private final Queue<Timeline.Playback> playbackQueue = new ConcurrentLinkedQueue<>();
+
+    // Live rendering keeps the background, the axes and everything that is not animating in one cached layer, which is
+    // only redrawn when that set changes, one of its members publishes a new state or a cue may have changed one of them
+    private final List<Renderable> layerRenderables = new ArrayList<>();
+    private final List<Object> layerStates = new ArrayList<>();
+    private final List<Renderable> staticRenderables = new ArrayList<>();
+    private final List<Renderable> animatingRenderables = new ArrayList<>();
+    private VolatileImage layer;
+    private boolean layerDirty = true;
+    private boolean layerCoordinates;
+    private long frames = 0;
 
     public boolean drawCoordinates = true;
 
     public void registerRenderable(Renderable renderable) {
-        if (renderables.contains(renderable)) {
-            return;
-        }
-        renderRegisterQueue.add(() -> {
-            renderables.add(renderable);
-            System.out.printf("Adding %s%n", renderable.getClass().getTypeName());
-        });
+        renderRegisterQueue.offer(renderable);
     }
 
     public void deleteRenderable(Renderable renderable) {
-        renderDeletionQueue.add(() -> {
-            renderables.remove(renderable);
-            System.out.printf("Removing %s%n", renderable.getClass().getTypeName());
-        });
+        renderDeletionQueue.offer(renderable);
+    }
+
+    void play(Timeline.Playback playback) {
+        playbackQueue.offer(playback);
     }
 
     public void render(Graphics2D g) {
+        FrameRenderEvent event = new FrameRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        this.update();
+        staticRenderables.clear();
+        animatingRenderables.clear();
+        for (Renderable renderable : renderables) {
+            (renderable.isAnimating() ? animatingRenderables : staticRenderables).add(renderable);
+        }
+        if (!this.isLayerCurrent()) {
+            layerRenderables.clear();
+            layerRenderables.addAll(staticRenderables);
+            // Recorded before the layer is drawn, a change made while it is drawn only causes one more redraw
+            layerStates.clear();
+            for (Renderable renderable : staticRenderables) {
+                layerStates.add(renderable.getState());
+            }
+            layerCoordinates = drawCoordinates;
+            layerDirty = true;
+        }
+
+        MathVideo mathVideo = MathVideo.getInstance();
+        GraphicsConfiguration configuration = mathVideo.getGraphicsConfiguration();
+        do {
+            int validation = layer == null ? VolatileImage.IMAGE_INCOMPATIBLE : layer.validate(configuration);
+            if (validation == VolatileImage.IMAGE_INCOMPATIBLE || layer.getWidth() != mathVideo.getWidth() || layer.getHeight() != mathVideo.getHeight()) {
+                layer = mathVideo.createVolatileImage(mathVideo.getWidth(), mathVideo.getHeight());
+                layerDirty = true;
+            } else if (validation == VolatileImage.IMAGE_RESTORED) {
+                layerDirty = true;
+            }
+            if (layerDirty) {
+                Graphics2D layerGraphics = layer.createGraphics();
+                mathVideo.paintBackground(layerGraphics);
+                this.render(layerGraphics, layerRenderables);
+                layerGraphics.dispose();
+                layerDirty = false;
+            }
+            g.drawImage(layer, 0, 0, null);
+        } while (layer.contentsLost());
+
+        MathVideo.applyRenderingHints(g);
+        for (Renderable renderable : animatingRenderables) {
+            render(g, renderable);
+        }
+        event.finish(start, frames++, renderables.size(), animatingRenderables.size());
+    }
+
+    private boolean isLayerCurrent() {
+        if (layerCoordinates != drawCoordinates || layerRenderables.size() != staticRenderables.size()) {
+            return false;
+        }
+        for (int i = 0; i < staticRenderables.size(); i++) {
+            Renderable renderable = staticRenderables.get(i);
+            if (layerRenderables.get(i) != renderable || layerStates.get(i) != renderable.getState()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<Renderable> snapshot() {
+        this.update();
+        List<Renderable> snapshots = new ArrayList<>(renderables.size());
+        for (Renderable renderable : renderables) {
+            snapshots.add(renderable.snapshot());
+        }
+        return snapshots;
+    }
+
+    // Brings every renderable to the current time of the scene clock. Every cue passed since the last frame is replayed
+    // at its own time, so a frame long gap and a seek across minutes of timeline both end up in the same state
+    private void update() {
+        long now = MathVideo.getClock().nanoTime();
+        for (Timeline.Playback playback; (playback = playbackQueue.poll()) != null;) {
+            playbacks.add(playback);
+        }
+        if (this.getNextCueTime() <= now) {
+            // Cues may change renderables that are already in the layer
+            layerDirty = true;
+        }
+        for (long cueTime; (cueTime = this.getNextCueTime()) < now;) {
+            this.update(cueTime);
+        }
+        this.update(now);
+    }
+
+    private void update(long now) {
+        // Cues fire before the queues are processed, so whatever they register is already drawn in this frame
+        playbacks.removeIf(playback -> playback.fire(now));
+        this.processQueues();
+        for (Renderable renderable : renderables) {
+            renderable.update(now);
+        }
+    }
+
+    private long getNextCueTime() {
+        long next = Long.MAX_VALUE;
+        for (Timeline.Playback playback : playbacks) {
+            next = Math.min(next, playback.getNextCueTime());
+        }
+        return next;
+    }
+
+    public void render(Graphics2D g, List<Renderable> renderables) {
+        this.renderCoordinates(g);
+        for (Renderable renderable : renderables) {
+            render(g, renderable);
+        }
+    }
+
+    // Skips renderables whose bounds miss the area, given in user space. The caller clips g to the tile the area covers,
+    // each tile writes nothing but its own pixels, so all tiles of a frame can be drawn into the same image at once
+    public void render(Graphics2D g, List<Renderable> renderables, Rectangle2D area) {
+        this.renderCoordinates(g);
+        // Antialiasing may touch the pixel next to the bounds
+        Rectangle2D reach = new Rectangle2D.Double(area.getX() - 1, area.getY() - 1, area.getWidth() + 2, area.getHeight() + 2);
+        for (Renderable renderable : renderables) {
+            Rectangle2D bounds = renderable.getBounds();
+            if (bounds == null || bounds.intersects(reach)) {
+                render(g, renderable);
+            }
+        }
+    }
+
+    private void renderCoordinates(Graphics2D g) {
         if (drawCoordinates) {
             drawLine(g, MathVideo.GRAY, 0.5, new Point2D.Double(MathVideo.getInstance().getWidth() * -0.5, 0), new Point2D.Double(MathVideo.getInstance().getWidth() * 0.5,  0));
             drawLine(g, MathVideo.GRAY, 0.5, new Point2D.Double(0, MathVideo.getInstance().getHeight() * -0.5), new Point2D.Double(0,  MathVideo.getInstance().getHeight() * 0.5));
         }
-        for (Iterator<Runnable> iterator = renderDeletionQueue.iterator(); iterator.hasNext();) {
-            iterator.next().run();
-            iterator.remove();
+    }
+
+    // Records a RenderableRenderEvent around the call, which the JIT reduces to a flag check while JFR is off
+    private static void render(Graphics2D g, Renderable renderable) {
+        RenderableRenderEvent event = new RenderableRenderEvent();
+        event.begin();
+        renderable.render(g);
+        event.finish(renderable);
+    }
+
+    private void processQueues() {
+        boolean removed = false;
+        for (Renderable renderable; (renderable = renderDeletionQueue.poll()) != null;) {
+            if (renderableIndex.remove(renderable)) {
+                removed = true;
+                System.out.printf("Removing %s%n", renderable.getClass().getTypeName());
+            }
         }
-        for (Iterator<Runnable> iterator = renderRegisterQueue.iterator(); iterator.hasNext();) {
-            iterator.next().run();
-            iterator.remove();
+        if (removed) {
+            renderables.removeIf(renderable -> !renderableIndex.contains(renderable));
         }
-        for (Renderable renderable : renderables) {
-            renderable.render(g);
+        for (Renderable renderable; (renderable = renderRegisterQueue.poll()) != null;) {
+            if (renderableIndex.add(renderable)) {
+                renderables.add(renderable);
+                System.out.printf("Adding %s%n", renderable.getClass().getTypeName());
+            }
         }
     }
 
     public static void drawLine(Graphics2D graphics, Color color, double width, Point2D start, Point2D end) {
         graphics.setColor(color);
-        graphics.setStroke(new BasicStroke((float) width));
-        Point2D transformedStart = coordinateSpaceToUserSpace(start);
-        Point2D transformedEnd = coordinateSpaceToUserSpace(end);
+        graphics.setStroke(getStroke(width));
         graphics.draw(new Line2D.Double(
-                transformedStart.getX(), transformedStart.getY(),
-                transformedEnd.getX(), transformedEnd.getY()));
+                toUserX(start.getX()), toUserY(start.getY()),
+                toUserX(end.getX()), toUserY(end.getY())));
+    }
+
+    public static BasicStroke getStroke(double width) {
+        return STROKES.computeIfAbsent((float) width, BasicStroke::new);
+    }
+
+    // Allocation free equivalents of coordinateSpaceToUserSpace at scale 1
+    public static double toUserX(double x) {
+        return MathVideo.getInstance().getWidth() / 2.0 + x;
+    }
+
+    public static double toUserY(double y) {
+        return MathVideo.getInstance().getHeight() / 2.0 - y;
     }
 
     public static Point2D coordinateSpaceToUserSpace(Point2D coordSpace) {
@@ -0,0 +1,80 @@
+package de.amethyst.mathvideo.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+
+// Function evaluation for graphs. Small, cheap jobs run on the calling thread; once a job has enough samples or the
+// function is slow enough that splitting pays for itself, the x-domain is split over the common fork-join pool.
+public class Sampling {
+    private static final int PARALLEL_COUNT = 16384;
+    // Estimated time for the whole job, measured on the first PROBE evaluations
+    private static final long PARALLEL_NANOS = 1_000_000;
+    static final int PROBE = 16;
+    private static final int MIN_CHUNK = 64;
+
+    public static boolean isParallel(int count, long nanosPerCall) {
+        return ForkJoinPool.getCommonPoolParallelism() > 1 && (count >= PARALLEL_COUNT || nanosPerCall * count >= PARALLEL_NANOS);
+    }
+
+    // Splits count items into chunks that keep every worker busy without drowning the pool in tiny tasks
+    static int getChunkSize(int count) {
+        return Math.max(MIN_CHUNK, count / (ForkJoinPool.getCommonPoolParallelism() * 4));
+    }
+
+    // function sampled at origin + k * step for k in [0, count)
+    public static double[] grid(DoubleUnaryOperator function, double origin, double step, int count) {
+        double[] samples = new double[count];
+        int probe = Math.min(PROBE, count);
+        long start = System.nanoTime();
+        for (int k = 0; k < probe; k++) {
+            samples[k] = function.applyAsDouble(origin + k * step);
+        }
+        long nanosPerCall = (System.nanoTime() - start) / Math.max(1, probe);
+        if (isParallel(count, nanosPerCall)) {
+            new GridTask(function, origin, step, samples, probe, count, getChunkSize(count)).invoke();
+        } else {
+            for (int k = probe; k < count; k++) {
+                samples[k] = function.applyAsDouble(origin + k * step);
+            }
+        }
+        return samples;
+    }
+
+    // Fills its own range of the shared buffer, so the workers never write to the same slot
+    private static class GridTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DoubleUnaryOperator function;
+        private final double origin;
+        private final double step;
+        private final double[] samples;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        private GridTask(DoubleUnaryOperator function, double origin, double step, double[] samples, int from, int to, int chunk) {
+            this.function = function;
+            this.origin = origin;
+            this.step = step;
+            this.samples = samples;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.chunk) {
+                for (int k = this.from; k < this.to; k++) {
+                    this.samples[k] = this.function.applyAsDouble(this.origin + k * this.step);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(
+                    new GridTask(this.function, this.origin, this.step, this.samples, this.from, middle, this.chunk),
+                    new GridTask(this.function, this.origin, this.step, this.samples, middle, this.to, this.chunk));
+        }
+    }
+}
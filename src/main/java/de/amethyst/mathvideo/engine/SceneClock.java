@@ -0,0 +1,16 @@
+package de.amethyst.mathvideo.engine;
+
+import java.time.Duration;
+
+public interface SceneClock {
+    long nanoTime();
+
+    void sleep(long millis) throws InterruptedException;
+
+    // Jumps forward to the given time and wakes every sleeper that is due by then, never moves backwards
+    void seek(long nanoTime);
+
+    default void sleep(Duration duration) throws InterruptedException {
+        this.sleep(duration.toMillis());
+    }
+}
@@ -5,11 +5,19 @@ import lombok.*;
 import lombok.experimental.Accessors;
 
 import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
 
 import static de.amethyst.mathvideo.engine.RenderMath.*;
 import static de.amethyst.mathvideo.MathVideo.*;
@@ -18,55 +26,145 @@ import static de.amethyst.mathvideo.MathVideo.*;
 @ToString
 @Accessors(chain = true)
 public class Text implements AnimatableDeletable, Cloneable {
-    @Setter
-    @Getter
-    private Point2D position;
+    // Everything a frame of the text is drawn from, replaced as a whole on every change like Graph.State
+    @Value
+    @With
+    public static class State {
+        Point2D position;
+        String content;
+        Color color;
+        int size;
+        boolean centered;
+        boolean smoothInterpolate;
+        boolean smoothDelete;
+        Transition animation;
+        double animationPercentage;
+        Transition deletion;
+        double deletionPercentage;
+
+        // Whether a layout made for the other state fits this one
+        private boolean layoutLike(State other) {
+            return this.content.equals(other.content) && this.color.equals(other.color) && this.size == other.size;
+        }
+    }
 
-    @Setter
-    @Getter
-    private String content;
+    private static final AtomicReferenceFieldUpdater<Text, State> STATE = AtomicReferenceFieldUpdater.newUpdater(Text.class, State.class, "state");
 
-    @Setter
-    @Getter
-    private Color color;
+    private static final Map<Integer, Font> fonts = new ConcurrentHashMap<>();
+    // Matches the hints set by MathVideo.applyRenderingHints, so layouts don't depend on the Graphics they end up in
+    private static final FontRenderContext fontRenderContext = new FontRenderContext(null, true, true);
+    // Tiles of one frame fill the same text at once, so every thread shifts the outline through its own view
+    private static final ThreadLocal<ShiftedOutline> SHIFTED_OUTLINE = ThreadLocal.withInitial(ShiftedOutline::new);
 
-    @Setter
     @Getter
-    private int size;
+    private volatile State state;
+
+    // Glyphs, metrics and gradients for the content, size and colour of the state it was made for
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile Layout layout;
+
+    // Outline of the laid out content with its origin on the baseline, what an asset bundle stores of a text
+    @Value
+    static class Glyphs {
+        Shape outline;
+        double width;
+        double leading;
+    }
 
-    private static final Font renogare;
+    // Only loaded once a text has to be laid out, a run whose texts all come from an asset bundle never reads the font
+    private static class Renogare {
+        private static final Font FONT;
 
-    @Setter
-    @Getter
-    private boolean centered;
+        static {
+            try {
+                FONT = Font.createFont(Font.TRUETYPE_FONT, Objects.requireNonNull(Text.class.getResourceAsStream("/Renogare-Regular.otf")));
+            } catch (FontFormatException | IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 
-    @Setter
-    @Getter
-    private boolean smoothInterpolate;
+    private static class Layout {
+        private final State state;
+        private final Glyphs glyphs;
+        // Ramps start at x = 0, render() moves them into place by translating the Graphics
+        private final GradientPaint revealPaint;
+        private final GradientPaint deletePaint;
+        private final Color[] fadeColors = new Color[256];
+
+        private Layout(State state) {
+            this.state = state;
+            this.glyphs = getGlyphs(state.getContent(), state.getSize());
+            Color transparent = new Color(0, 0, 0, 0);
+            this.revealPaint = new GradientPaint(0, 0, state.getColor(), state.getSize(), 0, transparent);
+            this.deletePaint = new GradientPaint(0, 0, transparent, state.getSize(), 0, state.getColor());
+        }
+    }
 
-    @Setter
-    @Getter
-    private boolean smoothDelete = true;
-
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private Duration animationDuration;
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private double animationPercentage = 1;
-
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private Duration deletionDuration;
-    @Setter(AccessLevel.PRIVATE)
-    @Getter(AccessLevel.PRIVATE)
-    private double deletionPercentage = 0;
-
-    static {
-        try {
-            renogare = Font.createFont(Font.TRUETYPE_FONT, Objects.requireNonNull(Text.class.getResourceAsStream("/Renogare-Regular.otf")));
-        } catch (FontFormatException | IOException e) {
-            throw new RuntimeException(e);
+    // The outline moved along x without copying it, its path is transformed while the renderer iterates it
+    private static class ShiftedOutline implements Shape {
+        private final AffineTransform transform = new AffineTransform();
+        private Shape outline;
+        private double dx;
+
+        private AffineTransform getTransform(AffineTransform at) {
+            this.transform.setToTranslation(this.dx, 0);
+            if (at != null) {
+                this.transform.preConcatenate(at);
+            }
+            return this.transform;
+        }
+
+        @Override
+        public PathIterator getPathIterator(AffineTransform at) {
+            return this.outline.getPathIterator(this.getTransform(at));
+        }
+
+        @Override
+        public PathIterator getPathIterator(AffineTransform at, double flatness) {
+            return this.outline.getPathIterator(this.getTransform(at), flatness);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return this.getBounds2D().getBounds();
+        }
+
+        @Override
+        public Rectangle2D getBounds2D() {
+            Rectangle2D bounds = this.outline.getBounds2D();
+            return new Rectangle2D.Double(bounds.getX() + this.dx, bounds.getY(), bounds.getWidth(), bounds.getHeight());
+        }
+
+        @Override
+        public boolean contains(double x, double y) {
+            return this.outline.contains(x - this.dx, y);
+        }
+
+        @Override
+        public boolean contains(Point2D p) {
+            return this.contains(p.getX(), p.getY());
+        }
+
+        @Override
+        public boolean intersects(double x, double y, double w, double h) {
+            return this.outline.intersects(x - this.dx, y, w, h);
+        }
+
+        @Override
+        public boolean intersects(Rectangle2D r) {
+            return this.intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+        }
+
+        @Override
+        public boolean contains(double x, double y, double w, double h) {
+            return this.outline.contains(x - this.dx, y, w, h);
+        }
+
+        @Override
+        public boolean contains(Rectangle2D r) {
+            return this.contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
         }
     }
 
@@ -83,101 +181,216 @@ public class Text implements AnimatableDeletable, Cloneable {
     }
 
     public Text(Point2D position, String content, Color color, int size, boolean centered, boolean smoothInterpolate) {
-        this.setPosition(position);
-        this.setContent(content);
-        this.setColor(color);
-        this.setSize(size);
-        this.setCentered(centered);
-        this.setSmoothInterpolate(smoothInterpolate);
+        this.state = new State(position, content, color, size, centered, smoothInterpolate, true, null, 1, null, 0);
     }
 
-    @Override
-    public void animate(Duration duration) {
-        this.setAnimationPercentage(0);
-        this.setAnimationDuration(duration);
-        MathVideo.getRenderer().registerRenderable(this);
+    private Text update(UnaryOperator<State> change) {
+        STATE.updateAndGet(this, change);
+        return this;
     }
 
-    @Override
-    public void render(Graphics2D g) {
-        Font font = renogare.deriveFont((float) this.getSize());
-        g.setFont(font);
-        g.setColor(this.getColor());
-        Point2D renderCoords = Renderer.coordinateSpaceToUserSpace(this.getPosition());
-        FontMetrics metrics = g.getFontMetrics(font);
-        if (this.isCentered()) {
-            AffineTransform centerShift = AffineTransform.getTranslateInstance(
-                    metrics.stringWidth(this.getContent()) / -2.0,
-                    (metrics.getHeight() - metrics.getAscent() - metrics.getDescent()) / 2.0);
-            renderCoords = centerShift.transform(renderCoords, null);
-        }
-        updateAnimation(g, renderCoords.getX(), metrics.stringWidth(this.getContent()));
-        updateDeletion(g, renderCoords.getX(), metrics.stringWidth(this.getContent()));
-        g.drawString(this.getContent(), (float) renderCoords.getX(), (float) renderCoords.getY());
+    public Point2D getPosition() {
+        return this.state.getPosition();
     }
 
-    @Override
-    public void animateDelete(Duration duration) {
-        this.setDeletionDuration(duration);
-        this.setDeletionPercentage(0);
+    public Text setPosition(Point2D position) {
+        return this.update(state -> state.withPosition(position));
     }
 
-    private void updateAnimation(Graphics2D g, double x, double width) {
-        if (this.getAnimationPercentage() >= 1) {
-            if (this.getAnimationPercentage() > 1) {
-                this.setAnimationPercentage(1);
-            }
-            return;
-        }
-        g.setPaint(new GradientPaint((float) interpolate(this.getAnimationPercentage(), x, x + width), 0, this.getColor(), (float) interpolate(this.getAnimationPercentage(), x, x + width) + this.getSize(), 0, new Color(0, 0, 0, 0)));
+    public String getContent() {
+        return this.state.getContent();
+    }
+
+    public Text setContent(String content) {
+        return this.update(state -> state.withContent(content));
+    }
 
-        this.setAnimationPercentage(this.getAnimationPercentage() + 1 / (FRAMERATE * this.getAnimationDuration().toMillis() / 1000));
+    public Color getColor() {
+        return this.state.getColor();
     }
 
-    private void updateDeletion(Graphics2D g, double x, double width) {
-        if (this.getDeletionDuration() == null) { // Deletion hasn't started
-            return;
+    public Text setColor(Color color) {
+        return this.update(state -> state.withColor(color));
+    }
+
+    public int getSize() {
+        return this.state.getSize();
+    }
+
+    public Text setSize(int size) {
+        return this.update(state -> state.withSize(size));
+    }
+
+    public boolean isCentered() {
+        return this.state.isCentered();
+    }
+
+    public Text setCentered(boolean centered) {
+        return this.update(state -> state.withCentered(centered));
+    }
+
+    public boolean isSmoothInterpolate() {
+        return this.state.isSmoothInterpolate();
+    }
+
+    public Text setSmoothInterpolate(boolean smoothInterpolate) {
+        return this.update(state -> state.withSmoothInterpolate(smoothInterpolate));
+    }
+
+    public boolean isSmoothDelete() {
+        return this.state.isSmoothDelete();
+    }
+
+    public Text setSmoothDelete(boolean smoothDelete) {
+        return this.update(state -> state.withSmoothDelete(smoothDelete));
+    }
+
+    private static Font getFont(int size) {
+        return fonts.computeIfAbsent(size, key -> Renogare.FONT.deriveFont((float) key));
+    }
+
+    // Glyphs are drawn as filled outlines, so texts from an asset bundle look exactly like ones laid out here
+    private static Glyphs getGlyphs(String content, int size) {
+        Glyphs glyphs = AssetBundle.findGlyphs(content, size);
+        if (glyphs == null) {
+            Font font = getFont(size);
+            GlyphVector vector = font.createGlyphVector(fontRenderContext, content);
+            glyphs = new Glyphs(vector.getOutline(), vector.getLogicalBounds().getWidth(), font.getLineMetrics(content, fontRenderContext).getLeading());
         }
+        AssetBundle.record(content, size, glyphs);
+        return glyphs;
+    }
 
-        if (this.isDeletionFinished()) {
-            g.setColor(new Color(0, 0, 0, 0));
-            return;
+    private Layout getLayout(State state) {
+        Layout layout = this.layout;
+        if (layout == null || !layout.state.layoutLike(state)) {
+            layout = new Layout(state);
+            this.layout = layout;
         }
+        return layout;
+    }
 
-        if (this.isSmoothDelete()) {
-            g.setPaint(new GradientPaint((float) interpolate(this.getDeletionPercentage(), x, x + width), 0, new Color(0, 0, 0, 0), (float) interpolate(this.getDeletionPercentage(), x, x + width) + this.getSize(), 0, this.getColor()));
+    @Override
+    public void animate(Duration duration) {
+        Transition animation = Transition.start(duration);
+        this.update(state -> state.withAnimationPercentage(0).withAnimation(animation));
+        MathVideo.getRenderer().registerRenderable(this);
+    }
+
+    @Override
+    public void render(Graphics2D g) {
+        State state = this.state;
+        Layout layout = this.getLayout(state);
+        Point2D origin = getOrigin(state, layout);
+        double x = origin.getX();
+        double y = origin.getY();
+
+        // Paint and edge of the gradient ramp, if any
+        Paint paint = state.getColor();
+        double edge = x;
+        if (state.getDeletion() != null) { // Deletion has started
+            if (state.getDeletionPercentage() >= 1) {
+                return;
+            }
+            if (state.isSmoothDelete()) {
+                paint = layout.deletePaint;
+                edge = interpolate(state, state.getDeletionPercentage(), x, x + layout.glyphs.getWidth());
+            } else {
+                paint = getFadeColor(layout, (int) interpolate(state, state.getDeletionPercentage(), state.getColor().getAlpha(), 0));
+            }
+        } else if (state.getAnimationPercentage() < 1) {
+            paint = layout.revealPaint;
+            edge = interpolate(state, state.getAnimationPercentage(), x, x + layout.glyphs.getWidth());
+        }
+
+        g.setPaint(paint);
+        // The ramp is anchored at the edge, the outline is shifted from there to where it starts
+        g.translate(edge, y);
+        if (edge == x) {
+            g.fill(layout.glyphs.getOutline());
         } else {
-            g.setColor(new Color(
-                    this.getColor().getRed(), this.getColor().getBlue(), this.getColor().getGreen(),
-                    (int) interpolate(this.getDeletionPercentage(), this.getColor().getAlpha(), 0)));
+            ShiftedOutline shifted = SHIFTED_OUTLINE.get();
+            shifted.outline = layout.glyphs.getOutline();
+            shifted.dx = x - edge;
+            g.fill(shifted);
+            shifted.outline = null;
         }
+        g.translate(-edge, -y);
+    }
 
-        this.setDeletionPercentage(this.getDeletionPercentage() + 1 / (FRAMERATE * this.getDeletionDuration().toMillis() / 1000));
+    @Override
+    public Rectangle2D getBounds() {
+        State state = this.state;
+        Layout layout = this.getLayout(state);
+        Point2D origin = getOrigin(state, layout);
+        Rectangle2D outline = layout.glyphs.getOutline().getBounds2D();
+        return new Rectangle2D.Double(outline.getX() + origin.getX(), outline.getY() + origin.getY(), outline.getWidth(), outline.getHeight());
     }
 
-    private boolean isDeletionFinished() {
-        if (this.getDeletionPercentage() >= 1) {
-            if (this.getDeletionPercentage() > 1) {
-                this.setDeletionPercentage(1);
-            }
-            MathVideo.getRenderer().deleteRenderable(this);
-            return true;
+    // Start of the baseline in user space
+    private static Point2D getOrigin(State state, Layout layout) {
+        double x = Renderer.toUserX(state.getPosition().getX());
+        double y = Renderer.toUserY(state.getPosition().getY());
+        if (state.isCentered()) {
+            x -= layout.glyphs.getWidth() / 2.0;
+            y += layout.glyphs.getLeading() / 2.0;
         }
+        return new Point2D.Double(x, y);
+    }
 
-        if (this.getDeletionDuration() == null) {
-            return true;
+    private static Color getFadeColor(Layout layout, int alpha) {
+        alpha = Math.max(0, Math.min(255, alpha));
+        Color fadeColor = layout.fadeColors[alpha];
+        if (fadeColor == null) {
+            Color color = layout.state.getColor();
+            fadeColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha);
+            layout.fadeColors[alpha] = fadeColor;
         }
+        return fadeColor;
+    }
 
-        if (this.getDeletionDuration().isZero()) {
-            this.setDeletionPercentage(1);
-            return true;
+    @Override
+    public void update(long now) {
+        State state = STATE.updateAndGet(this, current -> advance(current, now));
+        if (state.getDeletion() != null && state.getDeletionPercentage() >= 1) {
+            MathVideo.getRenderer().deleteRenderable(this);
         }
+    }
 
-        return false;
+    private static State advance(State state, long now) {
+        if (state.getAnimation() != null) {
+            state = state.withAnimationPercentage(state.getAnimation().progress(now));
+        }
+        if (state.getDeletion() != null) {
+            state = state.withDeletionPercentage(state.getDeletion().progress(now));
+        }
+        return state;
+    }
+
+    @Override
+    public boolean isAnimating() {
+        State state = this.state;
+        return state.getAnimationPercentage() < 1 || state.getDeletion() != null;
+    }
+
+    @Override
+    public void animateDelete(Duration duration) {
+        Transition deletion = Transition.start(duration);
+        this.update(state -> state.withDeletion(deletion).withDeletionPercentage(0));
     }
 
-    private double interpolate(double distance, double start, double stop) {
-        return this.isSmoothInterpolate() ? cerp(distance, start, stop) : lerp(distance, start, stop);
+    private static double interpolate(State state, double distance, double start, double stop) {
+        return state.isSmoothInterpolate() ? cerp(distance, start, stop) : lerp(distance, start, stop);
+    }
+
+    @Override
+    public Text snapshot() {
+        // The layout is only read while rendering, so snapshots share it with the live text
+        State state = this.state;
+        this.getLayout(state);
+        Text snapshot = this.clone();
+        snapshot.state = state;
+        return snapshot;
     }
 
     @Override
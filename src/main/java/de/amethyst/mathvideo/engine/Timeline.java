@@ -0,0 +1,171 @@
+package de.amethyst.mathvideo.engine;
+
+import de.amethyst.mathvideo.MathVideo;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Declarative scene choreography. Cues are placed at fixed offsets from the start of the timeline and fired by the
+// renderer at the start of the first frame that reaches them, so no scene thread has to sleep between them and the
+// offsets never drift, whether the clock is the wall clock or the export frame clock.
+public class Timeline {
+    private static final ThreadLocal<Long> CUE_TIME = new ThreadLocal<>();
+
+    @Value
+    private static class Cue {
+        long offset;
+        Runnable action;
+    }
+
+    private final List<Cue> cues = new ArrayList<>();
+    private long cursor = 0;
+
+    // Scene time for transitions started now: the exact time of the cue while one is firing, the clock otherwise
+    public static long now() {
+        Long cueTime = CUE_TIME.get();
+        return cueTime != null ? cueTime : MathVideo.getClock().nanoTime();
+    }
+
+    public Duration getDuration() {
+        return Duration.ofNanos(this.cursor);
+    }
+
+    public Timeline run(Runnable action) {
+        this.cues.add(new Cue(this.cursor, action));
+        return this;
+    }
+
+    public Timeline sleep(long millis) {
+        return this.sleep(Duration.ofMillis(millis));
+    }
+
+    public Timeline sleep(Duration duration) {
+        this.cursor += duration.toNanos();
+        return this;
+    }
+
+    public Timeline draw(Renderable renderable) {
+        return this.run(renderable::draw);
+    }
+
+    public Timeline delete(Renderable renderable) {
+        return this.run(renderable::delete);
+    }
+
+    public Timeline animate(Animatable animatable, Duration duration) {
+        return this.run(() -> animatable.animate(duration));
+    }
+
+    public Timeline animateWait(Animatable animatable, Duration duration) {
+        return this.animate(animatable, duration).sleep(duration);
+    }
+
+    public Timeline animateDelete(AnimatableDeletable animatable, Duration duration) {
+        return this.run(() -> animatable.animateDelete(duration));
+    }
+
+    public Timeline animateDeleteWait(AnimatableDeletable animatable, Duration duration) {
+        return this.animateDelete(animatable, duration).sleep(duration);
+    }
+
+    public Timeline morph(Graph graph, Duration duration, Graph morphTarget) {
+        return this.run(() -> graph.morph(duration, morphTarget));
+    }
+
+    // The target is built when the cue fires, so it can be derived from the state the graph has reached by then. The
+    // graph is brought up to the cue time first, a morph ending on this very cue has not been applied by a frame yet
+    public Timeline morph(Graph graph, Duration duration, Supplier<Graph> morphTarget) {
+        return this.run(() -> {
+            graph.update(now());
+            graph.morph(duration, morphTarget.get());
+        });
+    }
+
+    public Timeline morphWait(Graph graph, Duration duration, Graph morphTarget) {
+        return this.morph(graph, duration, morphTarget).sleep(duration);
+    }
+
+    public Timeline morphWait(Graph graph, Duration duration, Supplier<Graph> morphTarget) {
+        return this.morph(graph, duration, morphTarget).sleep(duration);
+    }
+
+    public Timeline morph(LaTeX laTeX, Duration duration, String targetLaTeX) {
+        // Rasterise the target while the timeline is being built instead of when the cue fires
+        laTeX.prefetch(targetLaTeX);
+        return this.run(() -> laTeX.morph(duration, targetLaTeX));
+    }
+
+    public Timeline morphWait(LaTeX laTeX, Duration duration, String targetLaTeX) {
+        return this.morph(laTeX, duration, targetLaTeX).sleep(duration.dividedBy(2));
+    }
+
+    public Timeline setLaTeX(LaTeX laTeX, String value) {
+        laTeX.prefetch(value);
+        return this.run(() -> laTeX.setLaTeX(value));
+    }
+
+    // Appends another timeline at the cursor, which then moves past its end
+    public Timeline append(Timeline timeline) {
+        for (Cue cue : timeline.cues) {
+            this.cues.add(new Cue(this.cursor + cue.getOffset(), cue.getAction()));
+        }
+        this.cursor += timeline.cursor;
+        return this;
+    }
+
+    public void play() {
+        MathVideo.getRenderer().play(new Playback(List.copyOf(this.cues), MathVideo.getClock().nanoTime()));
+    }
+
+    public void playWait() throws InterruptedException {
+        this.playWait(Duration.ZERO);
+    }
+
+    // Starts playing at the given offset into the timeline. The clock jumps there and the renderer replays every cue
+    // before it without drawing, so the cost does not depend on how far into the timeline the offset is
+    public void playWait(Duration from) throws InterruptedException {
+        SceneClock clock = MathVideo.getClock();
+        long start = clock.nanoTime();
+        MathVideo.getRenderer().play(new Playback(List.copyOf(this.cues), start));
+        clock.seek(start + from.toNanos());
+        clock.sleep(Duration.ofNanos(Math.max(0, start + this.cursor - clock.nanoTime())));
+    }
+
+    // One running copy of a timeline, owned by the render thread
+    static class Playback {
+        private final List<Cue> cues;
+        private final long start;
+        private int next = 0;
+
+        private Playback(List<Cue> cues, long start) {
+            this.cues = cues;
+            this.start = start;
+        }
+
+        long getNextCueTime() {
+            return this.next < this.cues.size() ? this.start + this.cues.get(this.next).getOffset() : Long.MAX_VALUE;
+        }
+
+        // Fires every cue that is due and reports whether the playback has run out of cues
+        boolean fire(long now) {
+            while (this.next < this.cues.size()) {
+                Cue cue = this.cues.get(this.next);
+                long cueTime = this.start + cue.getOffset();
+                if (cueTime > now) {
+                    return false;
+                }
+                this.next++;
+                CUE_TIME.set(cueTime);
+                try {
+                    cue.getAction().run();
+                } finally {
+                    CUE_TIME.remove();
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package de.amethyst.mathvideo.engine;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+// A running animation phase. Progress is derived from the scene clock, so a late or skipped frame never slows it down.
+@Value
+public class Transition {
+    long start;
+    Duration duration;
+
+    public static Transition start(Duration duration) {
+        return new Transition(Timeline.now(), duration);
+    }
+
+    public long getEnd() {
+        return this.start + this.duration.toNanos();
+    }
+
+    public double progress(long now) {
+        long nanos = this.duration.toNanos();
+        if (nanos <= 0) {
+            return 1;
+        }
+        return Math.max(0, Math.min(1, (double) (now - this.start) / nanos));
+    }
+}
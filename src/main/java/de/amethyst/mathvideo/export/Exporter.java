@@ -0,0 +1,134 @@
+package de.amethyst.mathvideo.export;
+
+import de.amethyst.mathvideo.MathVideo;
+import de.amethyst.mathvideo.engine.FrameClock;
+import de.amethyst.mathvideo.engine.FrameRenderEvent;
+import de.amethyst.mathvideo.engine.Renderable;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class Exporter {
+    // Frames with more pixels than this are split into tiles which are rasterised on the pool at once. Every in-flight
+    // frame holds a buffer, so at 4K and above the pool is kept busy by tiles instead of by more frames
+    private static final long TILED_PIXELS = 2560L * 1440;
+    private static final int TILE_SIZE = 512;
+
+    private final MathVideo mathVideo;
+    private final FrameClock clock;
+    private final ForkJoinPool pool;
+
+    public Exporter(MathVideo mathVideo, FrameClock clock) {
+        this(mathVideo, clock, ForkJoinPool.commonPool());
+    }
+
+    public Exporter(MathVideo mathVideo, FrameClock clock, ForkJoinPool pool) {
+        this.mathVideo = mathVideo;
+        this.clock = clock;
+        this.pool = pool;
+    }
+
+    public void export(FrameClock.Scene scene, FrameSink sink) throws IOException, InterruptedException {
+        this.export(scene, sink, null);
+    }
+
+    // Exports until the scene finishes or the clock reaches end. A scene that seeks ahead on start skips the frames
+    // before it, which keep their absolute index
+    public void export(FrameClock.Scene scene, FrameSink sink, Duration end) throws IOException, InterruptedException {
+        long endTime = end != null ? end.toNanos() : Long.MAX_VALUE;
+        // Frames hold device pixels, the scene is drawn into them through the device scale
+        int width = (int) Math.round(this.mathVideo.getWidth() * MathVideo.getDeviceScale());
+        int height = (int) Math.round(this.mathVideo.getHeight() * MathVideo.getDeviceScale());
+        // Frames in flight are bounded so memory stays flat; the writer drains them strictly in frame order. A tiled frame
+        // already spreads over the whole pool, one more is enough to hide the sink
+        boolean tiled = (long) width * height > TILED_PIXELS;
+        int window = tiled ? 2 : this.pool.getParallelism() * 2;
+        Deque<ForkJoinTask<Frame>> inFlight = new ArrayDeque<>(window);
+        FrameBufferRing ring = new FrameBufferRing(width, height, window * 2);
+        long frames = 0;
+
+        this.clock.start(scene);
+        this.clock.awaitIdle();
+        long start = System.nanoTime();
+        while (!this.clock.isFinished() && this.clock.nanoTime() < endTime) {
+            // Scene state is advanced sequentially, the frozen snapshot is rasterised on the pool
+            List<Renderable> snapshot = MathVideo.getRenderer().snapshot();
+            Frame frame = new Frame(this.clock.getFrame(), ring.acquire(), ring);
+            frames++;
+            inFlight.addLast(this.pool.submit(() -> tiled ? this.renderTiles(frame, snapshot) : this.renderFrame(frame, snapshot)));
+            if (inFlight.size() >= window) {
+                sink.write(join(inFlight.removeFirst()));
+            }
+            this.clock.advance();
+        }
+        while (!inFlight.isEmpty()) {
+            sink.write(join(inFlight.removeFirst()));
+        }
+        if (this.clock.getFailure() != null) {
+            throw new IllegalStateException("Scene failed", this.clock.getFailure());
+        }
+        System.out.printf("Exported %d frames in %.1fs%n", frames, (System.nanoTime() - start) / 1e9);
+    }
+
+    private Frame renderFrame(Frame frame, List<Renderable> snapshot) {
+        FrameRenderEvent event = new FrameRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Graphics2D g = frame.getImage().createGraphics();
+        g.scale(MathVideo.getDeviceScale(), MathVideo.getDeviceScale());
+        this.mathVideo.paintBackground(g);
+        MathVideo.getRenderer().render(g, snapshot);
+        g.dispose();
+        // Exported frames have no cached layer, every renderable counts as drawn
+        event.finish(start, frame.getIndex(), snapshot.size(), snapshot.size());
+        return frame;
+    }
+
+    // Tiles are forked from the frame's own task, idle workers steal them while it joins
+    private Frame renderTiles(Frame frame, List<Renderable> snapshot) {
+        FrameRenderEvent event = new FrameRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        BufferedImage image = frame.getImage();
+        List<ForkJoinTask<?>> tiles = new ArrayList<>();
+        for (int y = 0; y < image.getHeight(); y += TILE_SIZE) {
+            for (int x = 0; x < image.getWidth(); x += TILE_SIZE) {
+                Rectangle tile = new Rectangle(x, y, Math.min(TILE_SIZE, image.getWidth() - x), Math.min(TILE_SIZE, image.getHeight() - y));
+                tiles.add(ForkJoinTask.adapt(() -> this.renderTile(image, tile, snapshot)));
+            }
+        }
+        ForkJoinTask.invokeAll(tiles);
+        event.finish(start, frame.getIndex(), snapshot.size(), snapshot.size());
+        return frame;
+    }
+
+    private void renderTile(BufferedImage image, Rectangle tile, List<Renderable> snapshot) {
+        Graphics2D g = image.createGraphics();
+        // Clipped in device pixels before scaling, so neighbouring tiles meet without a gap at any scale
+        g.clip(tile);
+        double scale = MathVideo.getDeviceScale();
+        g.scale(scale, scale);
+        this.mathVideo.paintBackground(g);
+        Rectangle2D area = new Rectangle2D.Double(tile.x / scale, tile.y / scale, tile.width / scale, tile.height / scale);
+        MathVideo.getRenderer().render(g, snapshot, area);
+        g.dispose();
+    }
+
+    private static Frame join(ForkJoinTask<Frame> frame) throws IOException, InterruptedException {
+        try {
+            return frame.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Frame failed to render", e.getCause());
+        }
+    }
+}
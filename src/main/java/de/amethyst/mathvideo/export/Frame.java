@@ -0,0 +1,17 @@
+package de.amethyst.mathvideo.export;
+
+import lombok.Value;
+
+import java.awt.image.BufferedImage;
+
+@Value
+public class Frame {
+    long index;
+    BufferedImage image;
+    FrameBufferRing ring;
+
+    // Sinks call this once they no longer read the image, so the buffer can be rendered into again
+    public void release() {
+        this.ring.release(this.image);
+    }
+}
@@ -0,0 +1,40 @@
+package de.amethyst.mathvideo.export;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Fixed set of frame buffers handed out in turn. acquire() blocks while every buffer is still being rendered or
+// written, which throttles the producer to the speed of the slowest pipeline stage.
+public class FrameBufferRing {
+    private final int width;
+    private final int height;
+    private final int capacity;
+    private final BlockingQueue<BufferedImage> free;
+    private int allocated = 0;
+
+    public FrameBufferRing(int width, int height, int capacity) {
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public BufferedImage acquire() throws InterruptedException {
+        BufferedImage image = this.free.poll();
+        if (image != null) {
+            return image;
+        }
+        synchronized (this) {
+            if (this.allocated < this.capacity) {
+                this.allocated++;
+                return new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+            }
+        }
+        return this.free.take();
+    }
+
+    public void release(BufferedImage image) {
+        this.free.offer(image);
+    }
+}
@@ -0,0 +1,8 @@
+package de.amethyst.mathvideo.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface FrameSink extends Closeable {
+    void write(Frame frame) throws IOException;
+}
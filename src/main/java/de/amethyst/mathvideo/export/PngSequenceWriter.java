@@ -0,0 +1,61 @@
+package de.amethyst.mathvideo.export;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PngSequenceWriter implements FrameSink {
+    private final Path directory;
+    private final ThreadPoolExecutor encoders;
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    public PngSequenceWriter(Path directory) throws IOException {
+        this(directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PngSequenceWriter(Path directory, int threads) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        // Bounded queue + caller-runs: a renderer that outpaces the encoders encodes a frame itself instead of piling up images
+        this.encoders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public void write(Frame frame) throws IOException {
+        this.rethrow();
+        Path file = this.directory.resolve(String.format("frame_%06d.png", frame.getIndex()));
+        this.encoders.execute(() -> {
+            try {
+                ImageIO.write(frame.getImage(), "png", file.toFile());
+            } catch (IOException e) {
+                this.failure.compareAndSet(null, e);
+            } finally {
+                frame.release();
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.encoders.shutdown();
+        try {
+            this.encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        this.rethrow();
+    }
+
+    private void rethrow() throws IOException {
+        IOException e = this.failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package de.amethyst.mathvideo.export;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Uncompressed YUV4MPEG2 stream (4:2:0, BT.601 limited range) that an external encoder can read from a pipe, e.g.
+// java MathVideo --export-y4m - | ffmpeg -i - out.mp4
+public class Y4mWriter implements FrameSink {
+    private static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final int chromaWidth;
+    private final int chromaHeight;
+    private final byte[] planes;
+
+    public Y4mWriter(OutputStream out, int width, int height, double framerate) throws IOException {
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.chromaWidth = (width + 1) / 2;
+        this.chromaHeight = (height + 1) / 2;
+        this.planes = new byte[width * height + 2 * this.chromaWidth * this.chromaHeight];
+        this.out.write(String.format("YUV4MPEG2 W%d H%d F%d:1000 Ip A1:1 C420jpeg\n", width, height, Math.round(framerate * 1000))
+                .getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void write(Frame frame) throws IOException {
+        try {
+            this.convert(frame.getImage());
+        } finally {
+            frame.release();
+        }
+        this.out.write(FRAME_HEADER);
+        this.out.write(this.planes);
+    }
+
+    private void convert(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB || image.getWidth() != this.width || image.getHeight() != this.height) {
+            throw new IllegalArgumentException("Expected a " + this.width + "x" + this.height + " TYPE_INT_RGB frame");
+        }
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int u = this.width * this.height;
+        int v = u + this.chromaWidth * this.chromaHeight;
+
+        for (int i = 0; i < u; i++) {
+            int pixel = rgb[i];
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            this.planes[i] = (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+        }
+
+        // Chroma from the average of each 2x2 block, edges are clamped for odd sizes
+        for (int cy = 0; cy < this.chromaHeight; cy++) {
+            int row0 = 2 * cy * this.width;
+            int row1 = Math.min(2 * cy + 1, this.height - 1) * this.width;
+            for (int cx = 0; cx < this.chromaWidth; cx++) {
+                int x0 = 2 * cx;
+                int x1 = Math.min(x0 + 1, this.width - 1);
+                int p0 = rgb[row0 + x0];
+                int p1 = rgb[row0 + x1];
+                int p2 = rgb[row1 + x0];
+                int p3 = rgb[row1 + x1];
+                int r = ((p0 >> 16) & 0xFF) + ((p1 >> 16) & 0xFF) + ((p2 >> 16) & 0xFF) + ((p3 >> 16) & 0xFF);
+                int g = ((p0 >> 8) & 0xFF) + ((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF);
+                int b = (p0 & 0xFF) + (p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF);
+                int i = cy * this.chromaWidth + cx;
+                this.planes[u + i] = (byte) (((-38 * r - 74 * g + 112 * b + 512) >> 10) + 128);
+                this.planes[v + i] = (byte) (((112 * r - 94 * g - 18 * b + 512) >> 10) + 128);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
@@ -0,0 +1,34 @@
+package de.amethyst.mathvideo.expression;
+
+import lombok.Getter;
+
+import java.util.function.DoubleUnaryOperator;
+
+// A function of x given as plain text, e.g. (5x^4-2x^2+5)/10, both compiled for graphs and typeset for LaTeX
+public class Expression {
+    @Getter
+    private final String source;
+    private final Node tree;
+    @Getter
+    private final DoubleUnaryOperator function;
+
+    private Expression(String source, Node tree) {
+        this.source = source;
+        this.tree = tree;
+        this.function = ExpressionCompiler.compile(tree);
+    }
+
+    public static Expression parse(String source) {
+        return new Expression(source, new Parser(source).parse());
+    }
+
+    // Typeset as written, constants are only folded in the compiled code
+    public String toLaTeX() {
+        return this.tree.toLaTeX();
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+}
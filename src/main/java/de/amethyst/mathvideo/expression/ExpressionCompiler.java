@@ -0,0 +1,337 @@
+package de.amethyst.mathvideo.expression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+// Compiles a syntax tree into a hidden class implementing DoubleUnaryOperator, so evaluating a parsed expression costs
+// the same as a hand-written lambda instead of a walk over the tree for every sample. The body of applyAsDouble is
+// straight-line code without branches, which keeps the class file simple enough to write without a bytecode library.
+class ExpressionCompiler {
+    private static final String CLASS_NAME = "de/amethyst/mathvideo/expression/CompiledExpression";
+    private static final String OPERATOR = "java/util/function/DoubleUnaryOperator";
+    // Integer powers up to this are unrolled into multiplications, Math.pow is cheaper than longer chains
+    private static final int MAX_UNROLLED_POWER = 64;
+
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int DLOAD_1 = 0x27;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int DSTORE = 0x39;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private final ConstantPool pool = new ConstantPool();
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private int stack = 0;
+    private int maxStack = 0;
+    // Slot 0 is this, slots 1 and 2 hold the double argument
+    private int locals = 3;
+
+    static DoubleUnaryOperator compile(Node node) {
+        byte[] bytes = new ExpressionCompiler().write(fold(node));
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (DoubleUnaryOperator) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not load compiled expression", e);
+        }
+    }
+
+    // Evaluates constant subtrees and drops operations that never change the value, x^0 included since Math.pow
+    // returns 1 for every x. x+0 stays, it turns -0 into 0.
+    static Node fold(Node node) {
+        if (node instanceof Node.Negation negation) {
+            Node operand = fold(negation.getOperand());
+            if (operand instanceof Node.Constant constant) {
+                return new Node.Constant(-constant.getValue());
+            }
+            if (operand instanceof Node.Negation inner) {
+                return inner.getOperand();
+            }
+            return new Node.Negation(operand);
+        }
+        if (node instanceof Node.Binary binary) {
+            Node left = fold(binary.getLeft());
+            Node right = fold(binary.getRight());
+            Node.Binary folded = new Node.Binary(binary.getOperator(), left, right);
+            if (left instanceof Node.Constant && right instanceof Node.Constant) {
+                return new Node.Constant(folded.evaluate(0));
+            }
+            switch (binary.getOperator()) {
+                case '-', '/' -> {
+                    if (isConstant(right, binary.getOperator() == '-' ? 0 : 1)) {
+                        return left;
+                    }
+                }
+                case '*' -> {
+                    if (isConstant(right, 1)) {
+                        return left;
+                    }
+                    if (isConstant(left, 1)) {
+                        return right;
+                    }
+                }
+                case '^' -> {
+                    if (isConstant(right, 1)) {
+                        return left;
+                    }
+                    if (isConstant(right, 0)) {
+                        return new Node.Constant(1);
+                    }
+                }
+                default -> {
+                }
+            }
+            return folded;
+        }
+        if (node instanceof Node.Call call) {
+            Node argument = fold(call.getArgument());
+            if (argument instanceof Node.Constant constant) {
+                return new Node.Constant(call.getFunction().apply(constant.getValue()));
+            }
+            return new Node.Call(call.getFunction(), argument);
+        }
+        return node;
+    }
+
+    private static boolean isConstant(Node node, double value) {
+        return node instanceof Node.Constant constant && constant.getValue() == value;
+    }
+
+    private void emit(Node node) {
+        if (node instanceof Node.Constant constant) {
+            double value = constant.getValue();
+            if (Double.doubleToRawLongBits(value) == 0) {
+                this.op(DCONST_0, 2);
+            } else if (value == 1) {
+                this.op(DCONST_1, 2);
+            } else {
+                this.op(LDC2_W, 2);
+                this.u2(this.pool.doubleConstant(value));
+            }
+        } else if (node instanceof Node.Variable) {
+            this.op(DLOAD_1, 2);
+        } else if (node instanceof Node.Negation negation) {
+            this.emit(negation.getOperand());
+            this.op(DNEG, 0);
+        } else if (node instanceof Node.Binary binary) {
+            if (binary.getOperator() == '^' && binary.getRight() instanceof Node.Constant exponent
+                    && exponent.getValue() == Math.rint(exponent.getValue()) && Math.abs(exponent.getValue()) <= MAX_UNROLLED_POWER) {
+                this.emitPower(binary.getLeft(), (int) exponent.getValue());
+                return;
+            }
+            this.emit(binary.getLeft());
+            this.emit(binary.getRight());
+            switch (binary.getOperator()) {
+                case '+' -> this.op(DADD, -2);
+                case '-' -> this.op(DSUB, -2);
+                case '*' -> this.op(DMUL, -2);
+                case '/' -> this.op(DDIV, -2);
+                case '^' -> this.invokeMath("pow", "(DD)D", -2);
+                default -> throw new IllegalStateException("Unknown operator " + binary.getOperator());
+            }
+        } else if (node instanceof Node.Call call) {
+            this.emit(call.getArgument());
+            this.invokeMath(call.getFunction().getMethod(), "(D)D", 0);
+        } else {
+            throw new IllegalStateException("Unknown node " + node);
+        }
+    }
+
+    // base^exponent by square-and-multiply, x^5 becomes ((x*x)*(x*x))*x with x kept in a local of its own
+    private void emitPower(Node base, int exponent) {
+        if (exponent < 0) {
+            this.op(DCONST_1, 2);
+        }
+        int power = Math.abs(exponent);
+        this.emit(base);
+        int slot = this.locals;
+        boolean stored = Integer.bitCount(power) > 1;
+        if (stored) {
+            this.locals += 2;
+            this.op(DUP2, 2);
+            this.op(DSTORE, -2);
+            this.u1(slot);
+        }
+        for (int bit = Integer.highestOneBit(power) >> 1; bit > 0; bit >>= 1) {
+            this.op(DUP2, 2);
+            this.op(DMUL, -2);
+            if ((power & bit) != 0) {
+                this.op(DLOAD, 2);
+                this.u1(slot);
+                this.op(DMUL, -2);
+            }
+        }
+        if (exponent < 0) {
+            this.op(DDIV, -2);
+        }
+    }
+
+    private void invokeMath(String name, String descriptor, int stackChange) {
+        this.op(INVOKESTATIC, stackChange);
+        this.u2(this.pool.methodRef("java/lang/Math", name, descriptor));
+    }
+
+    private void op(int opcode, int stackChange) {
+        this.code.write(opcode);
+        this.stack += stackChange;
+        this.maxStack = Math.max(this.maxStack, this.stack);
+    }
+
+    private void u1(int value) {
+        this.code.write(value);
+    }
+
+    private void u2(int value) {
+        this.code.write(value >>> 8);
+        this.code.write(value);
+    }
+
+    private byte[] write(Node node) {
+        this.emit(node);
+        this.op(DRETURN, -2);
+        byte[] apply = this.code.toByteArray();
+
+        byte[] init = {(byte) ALOAD_0, (byte) INVOKESPECIAL, 0, 0, (byte) RETURN};
+        int objectInit = this.pool.methodRef("java/lang/Object", "<init>", "()V");
+        init[2] = (byte) (objectInit >>> 8);
+        init[3] = (byte) objectInit;
+
+        int thisClass = this.pool.classRef(CLASS_NAME);
+        int superClass = this.pool.classRef("java/lang/Object");
+        int operator = this.pool.classRef(OPERATOR);
+        int codeName = this.pool.utf8("Code");
+        int initName = this.pool.utf8("<init>");
+        int initDescriptor = this.pool.utf8("()V");
+        int applyName = this.pool.utf8("applyAsDouble");
+        int applyDescriptor = this.pool.utf8("(D)D");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            // Java 8 class files need no stack map frames, and the generated code has no branches to describe anyway
+            out.writeShort(52);
+            this.pool.writeTo(out);
+            // public final super
+            out.writeShort(0x0031);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(operator);
+            out.writeShort(0);
+            out.writeShort(2);
+            writeMethod(out, initName, initDescriptor, codeName, 1, 1, init);
+            writeMethod(out, applyName, applyDescriptor, codeName, this.maxStack, this.locals, apply);
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName, int maxStack, int maxLocals, byte[] code) throws IOException {
+        // public
+        out.writeShort(0x0001);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        // No exception table, no attributes
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static class ConstantPool {
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.entries);
+        private final Map<String, Integer> indices = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            return this.entry("Utf8 " + value, 1, out -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String name) {
+            int utf8 = this.utf8(name);
+            return this.entry("Class " + name, 1, out -> {
+                out.writeByte(7);
+                out.writeShort(utf8);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int classRef = this.classRef(owner);
+            int nameUtf8 = this.utf8(name);
+            int descriptorUtf8 = this.utf8(descriptor);
+            int nameAndType = this.entry("NameAndType " + name + descriptor, 1, out -> {
+                out.writeByte(12);
+                out.writeShort(nameUtf8);
+                out.writeShort(descriptorUtf8);
+            });
+            return this.entry("Methodref " + owner + "." + name + descriptor, 1, out -> {
+                out.writeByte(10);
+                out.writeShort(classRef);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        // Doubles take up two entries of the pool
+        int doubleConstant(double value) {
+            return this.entry("Double " + Double.doubleToRawLongBits(value), 2, out -> {
+                out.writeByte(6);
+                out.writeDouble(value);
+            });
+        }
+
+        private int entry(String key, int size, Entry entry) {
+            Integer index = this.indices.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                entry.writeTo(this.out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.indices.put(key, this.count);
+            this.count += size;
+            return this.count - size;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeShort(this.count);
+            out.write(this.entries.toByteArray());
+        }
+
+        private interface Entry {
+            void writeTo(DataOutputStream out) throws IOException;
+        }
+    }
+}
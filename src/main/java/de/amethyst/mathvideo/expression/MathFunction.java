@@ -0,0 +1,39 @@
+package de.amethyst.mathvideo.expression;
+
+import lombok.Getter;
+
+import java.util.function.DoubleUnaryOperator;
+
+// Functions an expression may call, each backed by a static (D)D method of java.lang.Math
+public enum MathFunction {
+    SIN("sin", "sin", Math::sin),
+    COS("cos", "cos", Math::cos),
+    TAN("tan", "tan", Math::tan),
+    ARCSIN("arcsin", "asin", Math::asin),
+    ARCCOS("arccos", "acos", Math::acos),
+    ARCTAN("arctan", "atan", Math::atan),
+    SINH("sinh", "sinh", Math::sinh),
+    COSH("cosh", "cosh", Math::cosh),
+    TANH("tanh", "tanh", Math::tanh),
+    EXP("exp", "exp", Math::exp),
+    LN("ln", "log", Math::log),
+    LOG("log", "log10", Math::log10),
+    SQRT("sqrt", "sqrt", Math::sqrt),
+    ABS("abs", "abs", Math::abs);
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String method;
+    private final DoubleUnaryOperator operator;
+
+    MathFunction(String name, String method, DoubleUnaryOperator operator) {
+        this.name = name;
+        this.method = method;
+        this.operator = operator;
+    }
+
+    public double apply(double value) {
+        return this.operator.applyAsDouble(value);
+    }
+}
@@ -0,0 +1,182 @@
+package de.amethyst.mathvideo.expression;
+
+import lombok.Value;
+
+import java.util.Locale;
+
+// Syntax tree of a parsed expression. evaluate() is only used for folding constants, compiled code does the real work
+public interface Node {
+    double evaluate(double x);
+
+    String toLaTeX();
+
+    // Binding strength when printed, higher binds tighter
+    int getPrecedence();
+
+    @Value
+    class Constant implements Node {
+        double value;
+
+        @Override
+        public double evaluate(double x) {
+            return this.value;
+        }
+
+        @Override
+        public String toLaTeX() {
+            if (this.value == Math.PI) {
+                // Keeps the command apart from a following symbol, as in \pi x
+                return "\\pi ";
+            }
+            if (this.value == Math.E) {
+                return "e";
+            }
+            if (this.value == Math.rint(this.value) && Math.abs(this.value) < 1e15) {
+                return Long.toString((long) this.value);
+            }
+            return String.format(Locale.ROOT, "%s", this.value);
+        }
+
+        @Override
+        public int getPrecedence() {
+            return this.value < 0 ? Binary.ADDITIVE : Binary.ATOM;
+        }
+    }
+
+    // The only variable, so a single instance
+    final class Variable implements Node {
+        public static final Variable INSTANCE = new Variable();
+
+        private Variable() {
+        }
+
+        @Override
+        public double evaluate(double x) {
+            return x;
+        }
+
+        @Override
+        public String toLaTeX() {
+            return "x";
+        }
+
+        @Override
+        public int getPrecedence() {
+            return Binary.ATOM;
+        }
+    }
+
+    @Value
+    class Negation implements Node {
+        Node operand;
+
+        @Override
+        public double evaluate(double x) {
+            return -this.operand.evaluate(x);
+        }
+
+        @Override
+        public String toLaTeX() {
+            return "-" + Binary.wrap(this.operand, Binary.MULTIPLICATIVE);
+        }
+
+        @Override
+        public int getPrecedence() {
+            return Binary.ADDITIVE;
+        }
+    }
+
+    @Value
+    class Binary implements Node {
+        static final int ADDITIVE = 1;
+        static final int MULTIPLICATIVE = 2;
+        static final int POWER = 3;
+        static final int ATOM = 4;
+
+        char operator;
+        Node left;
+        Node right;
+
+        @Override
+        public double evaluate(double x) {
+            double left = this.left.evaluate(x);
+            double right = this.right.evaluate(x);
+            return switch (this.operator) {
+                case '+' -> left + right;
+                case '-' -> left - right;
+                case '*' -> left * right;
+                case '/' -> left / right;
+                case '^' -> Math.pow(left, right);
+                default -> throw new IllegalStateException("Unknown operator " + this.operator);
+            };
+        }
+
+        @Override
+        public String toLaTeX() {
+            return switch (this.operator) {
+                case '+' -> wrap(this.left, ADDITIVE) + "+" + wrap(this.right, ADDITIVE);
+                case '-' -> wrap(this.left, ADDITIVE) + "-" + wrap(this.right, MULTIPLICATIVE);
+                case '*' -> {
+                    // 5x and 2\left(x+1\right) read fine as they are, two numbers in a row need a dot between them
+                    String left = this.isSigned() ? this.left.toLaTeX() : wrap(this.left, MULTIPLICATIVE);
+                    String right = wrap(this.right, POWER);
+                    yield left + (Character.isDigit(right.charAt(0)) ? "\\cdot " : "") + right;
+                }
+                case '/' -> "\\frac{" + this.left.toLaTeX() + "}{" + this.right.toLaTeX() + "}";
+                // Anything but a plain symbol gets brackets as a base, \\frac{1}{x}^{2} would be ambiguous and e^{x}^{2} is a
+                // double superscript
+                case '^' -> (this.left instanceof Binary || this.left instanceof Call call && call.getFunction() == MathFunction.EXP
+                        ? "\\left(" + this.left.toLaTeX() + "\\right)" : wrap(this.left, ATOM)) + "^{" + this.right.toLaTeX() + "}";
+                default -> throw new IllegalStateException("Unknown operator " + this.operator);
+            };
+        }
+
+        @Override
+        public int getPrecedence() {
+            return switch (this.operator) {
+                case '+', '-' -> ADDITIVE;
+                case '*' -> this.isSigned() ? ADDITIVE : MULTIPLICATIVE;
+                // A fraction is typeset as a block of its own
+                case '/' -> ATOM;
+                default -> POWER;
+            };
+        }
+
+        // A product led by a sign, like -5x^4, is typeset as written and binds as loosely as the negation it starts with
+        private boolean isSigned() {
+            return this.operator == '*' && (this.left instanceof Negation
+                    || this.left instanceof Constant constant && constant.getValue() < 0
+                    || this.left instanceof Binary binary && binary.isSigned());
+        }
+
+        static String wrap(Node node, int precedence) {
+            return node.getPrecedence() < precedence ? "\\left(" + node.toLaTeX() + "\\right)" : node.toLaTeX();
+        }
+    }
+
+    @Value
+    class Call implements Node {
+        MathFunction function;
+        Node argument;
+
+        @Override
+        public double evaluate(double x) {
+            return this.function.apply(this.argument.evaluate(x));
+        }
+
+        @Override
+        public String toLaTeX() {
+            return switch (this.function) {
+                case SQRT -> "\\sqrt{" + this.argument.toLaTeX() + "}";
+                case ABS -> "\\left|" + this.argument.toLaTeX() + "\\right|";
+                case EXP -> "e^{" + this.argument.toLaTeX() + "}";
+                default -> "\\" + this.function.getName() + "\\left(" + this.argument.toLaTeX() + "\\right)";
+            };
+        }
+
+        @Override
+        public int getPrecedence() {
+            return Binary.ATOM;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package de.amethyst.mathvideo.expression;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Recursive descent parser for expressions in x, like (5x^4-2x^2+5)/10 or 2sin(pi x)
+//   expression := term (('+' | '-') term)*
+//   term       := unary (('*' | '/') unary | unary)*     a factor right after another one is an implied product, one
+//                                                        starting with '|' only outside of bars, where it closes them
+//   unary      := ('-' | '+') unary | power
+//   power      := primary ('^' unary)?                   right-associative, -x^2 is -(x^2)
+//   primary    := number | 'x' | 'pi' | 'e' | function primary | '(' expression ')' | '|' expression '|'
+//   number     := digits ('.' digits)? ('e' ('+' | '-')? digits)?     2e and 2e^x stay products with e
+class Parser {
+    // Longest names first so exp is not read as e times xp
+    private static final MathFunction[] FUNCTIONS = Arrays.stream(MathFunction.values())
+            .sorted(Comparator.comparingInt((MathFunction function) -> function.getName().length()).reversed())
+            .toArray(MathFunction[]::new);
+
+    private final String source;
+    private int position = 0;
+    // Absolute values currently open, inside them a '|' closes instead of starting an implied product
+    private int bars = 0;
+
+    Parser(String source) {
+        this.source = source;
+    }
+
+    Node parse() {
+        Node node = this.expression();
+        this.skipWhitespace();
+        if (this.position < this.source.length()) {
+            throw this.error("Unexpected '" + this.source.charAt(this.position) + "'");
+        }
+        return node;
+    }
+
+    private Node expression() {
+        Node node = this.term();
+        while (true) {
+            if (this.accept('+')) {
+                node = new Node.Binary('+', node, this.term());
+            } else if (this.accept('-')) {
+                node = new Node.Binary('-', node, this.term());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node term() {
+        Node node = this.unary();
+        while (true) {
+            if (this.accept('*')) {
+                node = new Node.Binary('*', node, this.unary());
+            } else if (this.accept('/')) {
+                node = new Node.Binary('/', node, this.unary());
+            } else if (this.startsFactor()) {
+                node = new Node.Binary('*', node, this.power());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node unary() {
+        if (this.accept('-')) {
+            return new Node.Negation(this.unary());
+        }
+        if (this.accept('+')) {
+            return this.unary();
+        }
+        return this.power();
+    }
+
+    private Node power() {
+        Node base = this.primary();
+        if (this.accept('^')) {
+            return new Node.Binary('^', base, this.unary());
+        }
+        return base;
+    }
+
+    private Node primary() {
+        this.skipWhitespace();
+        if (this.position >= this.source.length()) {
+            throw this.error("Unexpected end of expression");
+        }
+        char c = this.source.charAt(this.position);
+        if (Character.isDigit(c) || c == '.') {
+            return this.number();
+        }
+        if (this.accept('(')) {
+            // Bars around the brackets can't be closed inside them
+            int bars = this.bars;
+            this.bars = 0;
+            Node node = this.expression();
+            this.expect(')');
+            this.bars = bars;
+            return node;
+        }
+        if (this.accept('|')) {
+            this.bars++;
+            Node node = this.expression();
+            this.expect('|');
+            this.bars--;
+            return new Node.Call(MathFunction.ABS, node);
+        }
+        for (MathFunction function : FUNCTIONS) {
+            if (this.acceptName(function.getName())) {
+                return new Node.Call(function, this.primary());
+            }
+        }
+        if (this.acceptName("pi")) {
+            return new Node.Constant(Math.PI);
+        }
+        if (this.acceptName("e")) {
+            return new Node.Constant(Math.E);
+        }
+        if (this.acceptName("x")) {
+            return Node.Variable.INSTANCE;
+        }
+        throw this.error("Unexpected '" + c + "'");
+    }
+
+    private Node number() {
+        int start = this.position;
+        while (this.position < this.source.length()
+                && (Character.isDigit(this.source.charAt(this.position)) || this.source.charAt(this.position) == '.')) {
+            this.position++;
+        }
+        if (this.startsExponent()) {
+            this.position++;
+            if (this.source.charAt(this.position) == '+' || this.source.charAt(this.position) == '-') {
+                this.position++;
+            }
+            while (this.position < this.source.length() && Character.isDigit(this.source.charAt(this.position))) {
+                this.position++;
+            }
+        }
+        try {
+            return new Node.Constant(Double.parseDouble(this.source.substring(start, this.position)));
+        } catch (NumberFormatException e) {
+            this.position = start;
+            throw this.error("Malformed number");
+        }
+    }
+
+    // An e right after a number only starts an exponent if digits follow it, optionally after a sign
+    private boolean startsExponent() {
+        int next = this.position + 1;
+        if (this.position >= this.source.length() || Character.toLowerCase(this.source.charAt(this.position)) != 'e') {
+            return false;
+        }
+        if (next < this.source.length() && (this.source.charAt(next) == '+' || this.source.charAt(next) == '-')) {
+            next++;
+        }
+        return next < this.source.length() && Character.isDigit(this.source.charAt(next));
+    }
+
+    // Whether the next token can start a factor of an implied product, as in 5x, 2(x+1), x sin(x) or 2|x|
+    private boolean startsFactor() {
+        this.skipWhitespace();
+        if (this.position >= this.source.length()) {
+            return false;
+        }
+        char c = this.source.charAt(this.position);
+        return Character.isLetterOrDigit(c) || c == '.' || c == '(' || c == '|' && this.bars == 0;
+    }
+
+    private boolean acceptName(String name) {
+        if (this.source.startsWith(name, this.position)) {
+            this.position += name.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean accept(char c) {
+        this.skipWhitespace();
+        if (this.position < this.source.length() && this.source.charAt(this.position) == c) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!this.accept(c)) {
+            throw this.error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.source.length() && Character.isWhitespace(this.source.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + this.position + " in " + this.source);
+    }
+}
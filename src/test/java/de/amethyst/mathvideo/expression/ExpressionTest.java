@@ -0,0 +1,104 @@
+package de.amethyst.mathvideo.expression;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpressionTest {
+    private static final double DELTA = 1e-12;
+
+    // The compiled function and the unfolded tree have to agree on every value
+    private static void assertValue(double expected, String source, double x) {
+        assertEquals(expected, Expression.parse(source).getFunction().applyAsDouble(x), DELTA, source);
+        assertEquals(expected, new Parser(source).parse().evaluate(x), DELTA, source);
+    }
+
+    private static void assertLaTeX(String expected, String source) {
+        assertEquals(expected, Expression.parse(source).toLaTeX(), source);
+    }
+
+    private static void assertError(String message, String source) {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> Expression.parse(source));
+        assertEquals(message + " in " + source, exception.getMessage());
+    }
+
+    @Test
+    void precedence() {
+        assertValue(7, "1+2*3", 0);
+        assertValue(9, "(1+2)*3", 0);
+        assertValue(2, "8/2/2", 0);
+        assertValue(-1, "1-3+1", 0);
+        assertValue(512, "2^3^2", 0);
+        assertValue(-4, "-x^2", 2);
+        assertLaTeX("-x^{2}", "-x^2");
+        assertLaTeX("2^{3^{2}}", "2^3^2");
+        assertLaTeX("x-\\left(-5x\\right)", "x-(-5x)");
+    }
+
+    @Test
+    void impliedProducts() {
+        assertValue(10, "5x", 2);
+        assertValue(4, "2(x+1)", 1);
+        assertValue(2 * Math.PI, "pi x", 2);
+        assertValue(2 * Math.E, "2e", 0);
+        assertValue(2 * Math.exp(2), "2e^x", 2);
+        assertValue(2 * Math.exp(2), "2exp(x)", 2);
+        assertLaTeX("\\pi x", "pi x");
+        assertLaTeX("2\\sin\\left(\\pi x\\right)", "2sin(pi x)");
+        assertLaTeX("2\\cdot 3", "2*3");
+        assertLaTeX("3\\left(-x\\right)", "3*-x");
+    }
+
+    @Test
+    void absoluteValues() {
+        assertValue(6, "2|x|", -3);
+        assertValue(-12, "x|x-1|", -3);
+        assertValue(9, "|x||x|", -3);
+        assertValue(1.5, "|x|/2", -3);
+        assertLaTeX("2\\left|x\\right|", "2|x|");
+        assertValue(6, "|(2|x|)|", -3);
+        assertError("Expected '|' at position 2", "|x");
+    }
+
+    @Test
+    void powers() {
+        assertValue(Math.pow(Math.sin(2), 2), "sin(x)^2", 2);
+        assertValue(Math.exp(4), "exp(x)^2", 2);
+        assertValue(0.5, "2^-1", 0);
+        assertValue(2, "x^0.5", 4);
+        assertValue(-8, "(-2)^3", 0);
+        assertLaTeX("\\sin\\left(x\\right)^{2}", "sin(x)^2");
+        assertLaTeX("\\left(e^{x}\\right)^{2}", "exp(x)^2");
+        assertLaTeX("\\sqrt{x}^{2}", "sqrt(x)^2");
+    }
+
+    @Test
+    void scientificNotation() {
+        assertValue(1000, "1e3", 0);
+        assertValue(250, "2.5E+2", 0);
+        assertValue(0.002, "1e-3x", 2);
+        assertLaTeX("1000", "1e3");
+        assertLaTeX("0.001x", "1e-3x");
+        assertLaTeX("2e", "2e");
+    }
+
+    @Test
+    void signedProducts() {
+        assertValue(7.7, "(5x^4-2x^2+5)/10", 2);
+        assertValue(-7.7, "(-5x^4+2x^2-5)/10", 2);
+        assertLaTeX("\\frac{5x^{4}-2x^{2}+5}{10}", "(5x^4-2x^2+5)/10");
+        assertLaTeX("\\frac{-5x^{4}+2x^{2}-5}{10}", "(-5x^4+2x^2-5)/10");
+        assertLaTeX("-2x", "-2*x");
+    }
+
+    @Test
+    void errors() {
+        assertError("Unexpected end of expression at position 0", "");
+        assertError("Unexpected end of expression at position 2", "2+");
+        assertError("Expected ')' at position 2", "(x");
+        assertError("Unexpected 'f' at position 0", "foo");
+        assertError("Unexpected ')' at position 1", "x)");
+        assertError("Malformed number at position 0", "1..2");
+    }
+}